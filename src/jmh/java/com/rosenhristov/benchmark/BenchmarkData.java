@@ -0,0 +1,41 @@
+package com.rosenhristov.benchmark;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Synthetic rows for the benchmarks: EmpID, ProjectID, DateFrom, DateTo with the dates formatted as
+ * 'yyyy-mm-dd' and every tenth end date NULL. The rows depend on the size and the seed only, so every
+ * run of a benchmark works on the same data.
+ */
+final class BenchmarkData {
+
+    private static final LocalDate FIRST_START_DATE = LocalDate.of(2010, 1, 1);
+
+    private BenchmarkData() {
+    }
+
+    /**
+     * @param size the number of rows
+     * @param seed the seed of the random generator
+     * @return the cells of the rows the way CSVFileReader reads them
+     */
+    static List<List<String>> rows(int size, long seed) {
+        Random random = new Random(seed);
+        int employees = Math.max(2, size / 5);
+        int projects = Math.max(1, size / 50);
+        List<List<String>> rows = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            LocalDate dateFrom = FIRST_START_DATE.plusDays(random.nextInt(4_000));
+            LocalDate dateTo = dateFrom.plusDays(1 + random.nextInt(700));
+            rows.add(List.of(
+                    String.valueOf(random.nextInt(employees)),
+                    String.valueOf(random.nextInt(projects)),
+                    dateFrom.toString(),
+                    i % 10 == 0 ? "NULL" : dateTo.toString()));
+        }
+        return rows;
+    }
+}
@@ -0,0 +1,60 @@
+package com.rosenhristov.benchmark;
+
+import com.rosenhristov.model.AssignmentTable;
+import com.rosenhristov.model.CSVRowData;
+import com.rosenhristov.service.CSVFileReader;
+import com.rosenhristov.utils.DatasetGenerator;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Reads a synthetic CSV file, generated by the DatasetGenerator, with the read modes of CSVFileReader
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class CSVFileReaderBenchmark {
+
+    @Param({"10000", "100000", "1000000"})
+    private int rows;
+
+    private File csvFile;
+
+    @Setup(Level.Trial)
+    public void writeCsvFile() throws IOException {
+        csvFile = File.createTempFile("benchmark-", ".csv");
+        DatasetGenerator.create()
+                .rows(rows)
+                .employees(Math.max(2, rows / 5))
+                .projects(Math.max(1, rows / 50))
+                .write(csvFile);
+    }
+
+    @TearDown(Level.Trial)
+    public void deleteCsvFile() {
+        csvFile.delete();
+    }
+
+    @Benchmark
+    public List<CSVRowData> read() {
+        return CSVFileReader.of(csvFile).read();
+    }
+
+    @Benchmark
+    public void stream(Blackhole blackhole) {
+        CSVFileReader.of(csvFile).read(blackhole::consume);
+    }
+
+    @Benchmark
+    public AssignmentTable readTable() {
+        return CSVFileReader.of(csvFile).readTable();
+    }
+}
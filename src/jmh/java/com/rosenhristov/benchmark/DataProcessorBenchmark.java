@@ -0,0 +1,55 @@
+package com.rosenhristov.benchmark;
+
+import com.rosenhristov.mapper.Mapper;
+import com.rosenhristov.model.CSVRowData;
+import com.rosenhristov.model.Employee;
+import com.rosenhristov.model.ProjectCollaboration;
+import com.rosenhristov.service.DataProcessor;
+import org.apache.commons.lang3.tuple.Pair;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+/**
+ * Runs the stages of DataProcessor on synthetic rows. Every invocation starts from a new DataProcessor,
+ * so the stages are measured together with the grouping of the assignments by project they depend on.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class DataProcessorBenchmark {
+
+    @Param({"10000", "100000", "1000000"})
+    private int rows;
+
+    private List<CSVRowData> csvRowData;
+
+    @Setup(Level.Trial)
+    public void createRows() {
+        Mapper mapper = Mapper.create("yyyy-mm-dd");
+        csvRowData = BenchmarkData.rows(rows, 42).stream()
+                .map(mapper::mapCells)
+                .collect(Collectors.toList());
+    }
+
+    @Benchmark
+    public Map<Integer, Employee> groupProjectsByEmployee() {
+        return DataProcessor.of(csvRowData).groupProjectsByEmployee();
+    }
+
+    @Benchmark
+    public List<ProjectCollaboration> extractProjectCollaborations() {
+        return DataProcessor.of(csvRowData).extractProjectCollaborations();
+    }
+
+    @Benchmark
+    public Map<Pair<Integer, Integer>, Integer> getLongestProjectCollaboration() {
+        return DataProcessor.of(csvRowData).getLongestProjectCollaboration();
+    }
+}
@@ -0,0 +1,37 @@
+package com.rosenhristov.benchmark;
+
+import com.rosenhristov.service.DateAnalyst;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Identifies the date format of synthetic rows. The dates of the rows are ambiguous for the first rows
+ * only, so the benchmark shows how soon the analysis stops.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class DateAnalystBenchmark {
+
+    @Param({"1000", "10000", "100000"})
+    private int rows;
+
+    private List<List<String>> rowStrings;
+
+    @Setup(Level.Trial)
+    public void createRows() {
+        rowStrings = BenchmarkData.rows(rows, 42);
+    }
+
+    @Benchmark
+    public String identifyDateFormat() {
+        return DateAnalyst.of(rowStrings)
+                .identifyDateFormat()
+                .getDateFormat();
+    }
+}
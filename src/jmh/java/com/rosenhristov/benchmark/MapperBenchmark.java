@@ -0,0 +1,39 @@
+package com.rosenhristov.benchmark;
+
+import com.rosenhristov.mapper.Mapper;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Maps the cells of synthetic rows to CSVRowData instances
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class MapperBenchmark {
+
+    @Param({"1000", "10000", "100000"})
+    private int rows;
+
+    private List<List<String>> rowStrings;
+    private Mapper mapper;
+
+    @Setup(Level.Trial)
+    public void createRows() {
+        rowStrings = BenchmarkData.rows(rows, 42);
+        mapper = Mapper.create("yyyy-mm-dd");
+    }
+
+    @Benchmark
+    public void mapCells(Blackhole blackhole) {
+        for (List<String> row : rowStrings) {
+            blackhole.consume(mapper.mapCells(row));
+        }
+    }
+}
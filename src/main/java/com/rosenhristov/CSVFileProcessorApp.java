@@ -1,6 +1,6 @@
 package com.rosenhristov;
 
-import com.rosenhristov.model.CSVRowData;
+import com.rosenhristov.model.AssignmentTable;
 import com.rosenhristov.service.*;
 import org.apache.commons.lang3.tuple.Pair;
 
@@ -11,20 +11,44 @@ public class CSVFileProcessorApp {
 
     private static String filePath;
 
+    /**
+     * Runs in batch mode if any arguments are given (see BatchProcessor.USAGE), otherwise asks for
+     * the file in a dialog and displays the result in a data grid
+     */
     public static void main(String[] args) {
+        if (args.length > 0) {
+            runBatch(args);
+            return;
+        }
+        runInteractive();
+    }
+
+    /**
+     * Headless mode: no Swing or AWT class is referenced on this path, so none is loaded
+     */
+    private static void runBatch(String[] args) {
+        try {
+            BatchProcessor.of(args).run();
+        } catch (IOException e) {
+            throw new RuntimeException("Exception occurred:", e);
+        }
+    }
+
+    private static void runInteractive() {
         try {
 
             //            BaseUserInputReader userInputReader = ConsoleUserInputReader.create();
-            BaseUserInputReader userInputReader = UserInputReaderGUI.create();
+            // declared with its own type, so verifying this class does not load the GUI class in batch mode
+            UserInputReaderGUI userInputReader = UserInputReaderGUI.create();
 
             userInputReader.getUserInput();
 
             filePath = userInputReader.getFilePath();
 
             CSVFileReader csvFileReader = CSVFileReader.of(filePath);
-            List<CSVRowData> csvRowData = csvFileReader.read();
+            AssignmentTable assignments = csvFileReader.readTable();
 
-            DataProcessor dataProcessor = DataProcessor.of(csvRowData);
+            DataProcessor dataProcessor = DataProcessor.of(assignments);
 
             /*
              * I use data structure Map<Pair<EmpID, EmpID>, longestCollaborationTime> here because I cannot be sure that
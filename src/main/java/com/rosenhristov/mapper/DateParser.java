@@ -0,0 +1,202 @@
+package com.rosenhristov.mapper;
+
+import java.nio.ByteBuffer;
+import java.time.LocalDate;
+
+import static com.rosenhristov.service.DateAnalyst.*;
+
+/**
+ * Date parser compiled from a date format identified by the DateAnalyst, e.g. 'dd.mm.yyyy'.
+ * It knows the order of the date parts and the delimiter, so it decodes the digits of a date straight
+ * to an epoch day. It allocates nothing, depends on no locale or time zone and, being immutable,
+ * can be shared by any number of threads.
+ *
+ * The 'NULL' end date is decoded as the epoch day of the day the parser has been compiled.
+ */
+public final class DateParser {
+
+    /**
+     * Returned by the parse methods when the text is not a date in the compiled format
+     */
+    public static final int INVALID_DATE = Integer.MIN_VALUE;
+
+    private static final int YEAR_PART = 0;
+    private static final int MONTH_PART = 1;
+    private static final int DAY_PART = 2;
+
+    private final String dateFormat;
+    private final int leftPart;
+    private final int midPart;
+    private final int rightPart;
+    private final char delimiter;
+    private final int today;
+
+    private DateParser(String dateFormat, int[] parts, char delimiter) {
+        this.dateFormat = dateFormat;
+        this.leftPart = parts[0];
+        this.midPart = parts[1];
+        this.rightPart = parts[2];
+        this.delimiter = delimiter;
+        this.today = (int) LocalDate.now().toEpochDay();
+    }
+
+    /**
+     * Compiles a date format made of the 'dd', 'mm' and 'yyyy' tokens separated by one and the same delimiter
+     *
+     * @param dateFormat the date format, e.g. 'yyyy-mm-dd'
+     * @return the compiled parser
+     */
+    public static DateParser compile(String dateFormat) {
+        String[] tokens = dateFormat.split(DELIMITER_REGEX);
+        if (tokens.length != 3) {
+            throw new IllegalArgumentException("Not a supported date format: " + dateFormat);
+        }
+        int[] parts = new int[3];
+        for (int i = 0; i < tokens.length; i++) {
+            if (tokens[i].equals(YEAR)) {
+                parts[i] = YEAR_PART;
+            } else if (tokens[i].equals(MONTH)) {
+                parts[i] = MONTH_PART;
+            } else if (tokens[i].equals(DAY)) {
+                parts[i] = DAY_PART;
+            } else {
+                throw new IllegalArgumentException("Not a supported date format: " + dateFormat);
+            }
+        }
+        if (parts[0] == parts[1] || parts[1] == parts[2] || parts[0] == parts[2]) {
+            throw new IllegalArgumentException("Not a supported date format: " + dateFormat);
+        }
+        return new DateParser(dateFormat, parts, dateFormat.charAt(tokens[0].length()));
+    }
+
+    /**
+     * @return the epoch day of the date or INVALID_DATE if the text is not a date in the compiled format
+     */
+    public int parseEpochDay(CharSequence date) {
+        int length = date.length();
+        if (isNull(date, length)) {
+            return today;
+        }
+        int year = 0;
+        int month = 0;
+        int day = 0;
+        int position = 0;
+        for (int part = 0; part < 3; part++) {
+            int value = 0;
+            int start = position;
+            char ch;
+            while (position < length && (ch = date.charAt(position)) >= '0' && ch <= '9') {
+                value = value * 10 + (ch - '0');
+                position++;
+            }
+            if (position == start || position - start > 4) {
+                return INVALID_DATE;
+            }
+            if (part < 2) {
+                if (position == length || date.charAt(position) != delimiter) {
+                    return INVALID_DATE;
+                }
+                position++;
+            }
+            switch (partAt(part)) {
+                case YEAR_PART: year = value; break;
+                case MONTH_PART: month = value; break;
+                default: day = value;
+            }
+        }
+        return position == length ? toEpochDay(year, month, day) : INVALID_DATE;
+    }
+
+    /**
+     * Decodes the date found between the from (inclusive) and to (exclusive) positions of the buffer
+     *
+     * @return the epoch day of the date or INVALID_DATE if the bytes are not a date in the compiled format
+     */
+    public int parseEpochDay(ByteBuffer buffer, int from, int to) {
+        if (isNull(buffer, from, to)) {
+            return today;
+        }
+        int year = 0;
+        int month = 0;
+        int day = 0;
+        int position = from;
+        for (int part = 0; part < 3; part++) {
+            int value = 0;
+            int start = position;
+            byte b;
+            while (position < to && (b = buffer.get(position)) >= '0' && b <= '9') {
+                value = value * 10 + (b - '0');
+                position++;
+            }
+            if (position == start || position - start > 4) {
+                return INVALID_DATE;
+            }
+            if (part < 2) {
+                if (position == to || buffer.get(position) != delimiter) {
+                    return INVALID_DATE;
+                }
+                position++;
+            }
+            switch (partAt(part)) {
+                case YEAR_PART: year = value; break;
+                case MONTH_PART: month = value; break;
+                default: day = value;
+            }
+        }
+        return position == to ? toEpochDay(year, month, day) : INVALID_DATE;
+    }
+
+    private int partAt(int part) {
+        return part == 0 ? leftPart : part == 1 ? midPart : rightPart;
+    }
+
+    private boolean isNull(CharSequence date, int length) {
+        return length == 4
+                && (date.charAt(0) | 0x20) == 'n'
+                && (date.charAt(1) | 0x20) == 'u'
+                && (date.charAt(2) | 0x20) == 'l'
+                && (date.charAt(3) | 0x20) == 'l';
+    }
+
+    private boolean isNull(ByteBuffer buffer, int from, int to) {
+        return to - from == 4
+                && (buffer.get(from) | 0x20) == 'n'
+                && (buffer.get(from + 1) | 0x20) == 'u'
+                && (buffer.get(from + 2) | 0x20) == 'l'
+                && (buffer.get(from + 3) | 0x20) == 'l';
+    }
+
+    /**
+     * Converts a date of the proleptic Gregorian calendar to an epoch day with integer arithmetic only
+     *
+     * @return the epoch day, i.e. the same as LocalDate.of(year, month, day).toEpochDay(),
+     *         or INVALID_DATE if there is no such date
+     */
+    public static int toEpochDay(int year, int month, int day) {
+        if (month < 1 || month > 12 || day < 1 || day > lengthOfMonth(year, month)) {
+            return INVALID_DATE;
+        }
+        int shiftedYear = month <= 2 ? year - 1 : year;
+        int era = (shiftedYear >= 0 ? shiftedYear : shiftedYear - 399) / 400;
+        int yearOfEra = shiftedYear - era * 400;
+        int dayOfYear = (153 * (month > 2 ? month - 3 : month + 9) + 2) / 5 + day - 1;
+        int dayOfEra = yearOfEra * 365 + yearOfEra / 4 - yearOfEra / 100 + dayOfYear;
+        return era * 146097 + dayOfEra - 719468;
+    }
+
+    private static int lengthOfMonth(int year, int month) {
+        if (month == 2) {
+            boolean leapYear = (year & 3) == 0 && (year % 100 != 0 || year % 400 == 0);
+            return leapYear ? 29 : 28;
+        }
+        return month == 4 || month == 6 || month == 9 || month == 11 ? 30 : 31;
+    }
+
+    public int getToday() {
+        return today;
+    }
+
+    public String getDateFormat() {
+        return dateFormat;
+    }
+}
@@ -1,10 +1,8 @@
 package com.rosenhristov.mapper;
 
+import com.rosenhristov.model.AssignmentTable;
 import com.rosenhristov.model.CSVRowData;
 
-import java.text.DateFormat;
-import java.text.ParseException;
-import java.text.SimpleDateFormat;
 import java.time.Instant;
 import java.time.LocalDate;
 import java.time.ZoneId;
@@ -13,53 +11,85 @@ import java.util.Date;
 import java.util.List;
 
 import static com.rosenhristov.utils.Constants.DEFAULT_DATE_FORMAT;
+import static java.util.Objects.isNull;
 import static org.apache.commons.lang3.StringUtils.isBlank;
 
+/**
+ * Maps the cells of a CSV line to a CSVRowData instance. The dates are decoded by a DateParser compiled from
+ * the date format, so a Mapper holds no mutable state and can be shared by threads mapping lines in parallel.
+ */
 public class Mapper {
 
     public String dateFormat;
 
-    private DateFormat dateFormatter;
+    private final DateParser dateParser;
 
-    private Mapper() {
-        this.dateFormat = DEFAULT_DATE_FORMAT;
-        this.dateFormatter = new SimpleDateFormat(dateFormat);
-    }
+    /**
+     * The time of all rows with a NULL end date, so they end at the same instant, a Date of its own is
+     * created per row as Date is mutable and a row changing its end date must not change the others
+     */
+    private final long nowMillis;
 
-    private Mapper(String dateFormat) {
-        this.dateFormat = dateFormat;
-        this.dateFormatter = new SimpleDateFormat(dateFormat);
+    private Mapper(DateParser dateParser) {
+        this.dateFormat = dateParser.getDateFormat();
+        this.dateParser = dateParser;
+        this.nowMillis = System.currentTimeMillis();
     }
 
     public static Mapper create() {
-        return new Mapper();
+        return new Mapper(DateParser.compile(DEFAULT_DATE_FORMAT));
     }
 
     public static Mapper create(String dateFormat) {
         return isBlank(dateFormat)
-                ? new Mapper()
-                : new Mapper(dateFormat);
+                ? create()
+                : new Mapper(DateParser.compile(dateFormat));
+    }
+
+    public static Mapper create(DateParser dateParser) {
+        return isNull(dateParser)
+                ? create()
+                : new Mapper(dateParser);
     }
 
     public CSVRowData mapCells(List<String> line) {
-        CSVRowData CSVRowData;
-        try {
-            CSVRowData = new CSVRowData(
-                    Integer.parseInt(line.get(0)),
-                    Integer.parseInt(line.get(1)),
-                    parseDate(line.get(2)),
-                    parseDate(line.get(3)));
-        } catch (ParseException pe) {
-            throw new RuntimeException("Problem parsing date on line " + Arrays.toString(line.toArray()), pe);
+        return new CSVRowData(
+                Integer.parseInt(line.get(0)),
+                Integer.parseInt(line.get(1)),
+                parseDate(line.get(2), line),
+                parseDate(line.get(3), line));
+    }
+
+    private Date parseDate(String dateString, List<String> line) {
+        if (dateString.equalsIgnoreCase("null")) {
+            return new Date(nowMillis);
+        }
+        int epochDay = dateParser.parseEpochDay(dateString);
+        if (epochDay == DateParser.INVALID_DATE) {
+            throw new RuntimeException("Problem parsing date on line " + Arrays.toString(line.toArray()));
         }
+        return toDate(epochDay);
+    }
 
-        return CSVRowData;
+    /**
+     * Converts rows already mapped to CSVRowData instances to a columnar AssignmentTable. The dates are
+     * converted to epoch days in the default time zone, once per row, at the boundary of the table.
+     */
+    public static AssignmentTable toAssignmentTable(List<CSVRowData> rowData) {
+        AssignmentTable table = AssignmentTable.create();
+        for (CSVRowData row : rowData) {
+            table.add(row.getEmployeeID(),
+                    row.getProjectID(),
+                    (int) toLocalDate(row.getDateFrom()).toEpochDay(),
+                    (int) toLocalDate(row.getDateTo()).toEpochDay());
+        }
+        return table;
     }
 
-    private Date parseDate(String dateString) throws ParseException {
-        return dateString.equalsIgnoreCase("null")
-                ? new Date()
-                : dateFormatter.parse(dateString);
+    public static Date toDate(int epochDay) {
+        return Date.from(LocalDate.ofEpochDay(epochDay)
+                .atStartOfDay(ZoneId.systemDefault())
+                .toInstant());
     }
 
     public static LocalDate toLocalDate(Date dateToConvert) {
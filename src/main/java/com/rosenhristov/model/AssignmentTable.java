@@ -0,0 +1,145 @@
+package com.rosenhristov.model;
+
+import java.nio.IntBuffer;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Columnar store of the rows of a CSV file. The employee IDs, the project IDs and the start and end dates
+ * (as epoch days) are kept in parallel int arrays, i.e. 16 bytes per row. The arrays grow in chunks of
+ * CHUNK_SIZE rows, so appending rows never copies the rows already stored.
+ */
+public class AssignmentTable extends Model {
+
+    private static final int CHUNK_BITS = 16;
+    private static final int CHUNK_SIZE = 1 << CHUNK_BITS;
+    private static final int CHUNK_MASK = CHUNK_SIZE - 1;
+
+    private int[][] employeeIDs = new int[0][];
+    private int[][] projectIDs = new int[0][];
+    private int[][] startDays = new int[0][];
+    private int[][] endDays = new int[0][];
+    private int size;
+
+    private AssignmentTable() {
+    }
+
+    public static AssignmentTable create() {
+        return new AssignmentTable();
+    }
+
+    /**
+     * Concatenates blocks of rows, e.g. the tables of the ranges of a file parsed in parallel, in the order
+     * of the list. The chunks of the first block are taken over as they are and the chunks of the other
+     * blocks are appended by bulk copies, so the blocks should not be used afterwards.
+     */
+    public static AssignmentTable concat(List<AssignmentTable> blocks) {
+        if (blocks.isEmpty()) {
+            return create();
+        }
+        AssignmentTable table = blocks.get(0);
+        for (int block = 1; block < blocks.size(); block++) {
+            table.addAll(blocks.get(block));
+        }
+        return table;
+    }
+
+    public void add(int employeeID, int projectID, int startDay, int endDay) {
+        int chunk = size >>> CHUNK_BITS;
+        if (chunk == employeeIDs.length) {
+            addChunk();
+        }
+        int offset = size & CHUNK_MASK;
+        employeeIDs[chunk][offset] = employeeID;
+        projectIDs[chunk][offset] = projectID;
+        startDays[chunk][offset] = startDay;
+        endDays[chunk][offset] = endDay;
+        size++;
+    }
+
+    private void addChunk() {
+        int chunks = employeeIDs.length + 1;
+        employeeIDs = Arrays.copyOf(employeeIDs, chunks);
+        projectIDs = Arrays.copyOf(projectIDs, chunks);
+        startDays = Arrays.copyOf(startDays, chunks);
+        endDays = Arrays.copyOf(endDays, chunks);
+        employeeIDs[chunks - 1] = new int[CHUNK_SIZE];
+        projectIDs[chunks - 1] = new int[CHUNK_SIZE];
+        startDays[chunks - 1] = new int[CHUNK_SIZE];
+        endDays[chunks - 1] = new int[CHUNK_SIZE];
+    }
+
+    /**
+     * Appends rows stored column by column, e.g. in a mapped snapshot file, copying every column
+     * chunk by chunk in bulk
+     *
+     * @param rows the number of rows to be read from every column buffer
+     */
+    public void addColumns(IntBuffer employeeIDColumn, IntBuffer projectIDColumn,
+                           IntBuffer startDayColumn, IntBuffer endDayColumn, int rows) {
+        int added = 0;
+        while (added < rows) {
+            int chunk = size >>> CHUNK_BITS;
+            if (chunk == employeeIDs.length) {
+                addChunk();
+            }
+            int offset = size & CHUNK_MASK;
+            int count = Math.min(CHUNK_SIZE - offset, rows - added);
+            employeeIDColumn.get(employeeIDs[chunk], offset, count);
+            projectIDColumn.get(projectIDs[chunk], offset, count);
+            startDayColumn.get(startDays[chunk], offset, count);
+            endDayColumn.get(endDays[chunk], offset, count);
+            size += count;
+            added += count;
+        }
+    }
+
+    /**
+     * Appends the rows of another table, e.g. the table of another file, copying its columns chunk by chunk
+     */
+    public void addAll(AssignmentTable other) {
+        for (int chunk = 0; chunk < other.employeeIDs.length; chunk++) {
+            int count = Math.min(CHUNK_SIZE, other.size - (chunk << CHUNK_BITS));
+            addColumns(IntBuffer.wrap(other.employeeIDs[chunk]), IntBuffer.wrap(other.projectIDs[chunk]),
+                    IntBuffer.wrap(other.startDays[chunk]), IntBuffer.wrap(other.endDays[chunk]), count);
+        }
+    }
+
+    /**
+     * Writes the rows column by column, the counterpart of addColumns
+     */
+    public void putColumns(IntBuffer employeeIDColumn, IntBuffer projectIDColumn,
+                           IntBuffer startDayColumn, IntBuffer endDayColumn) {
+        for (int chunk = 0; chunk < employeeIDs.length; chunk++) {
+            int count = Math.min(CHUNK_SIZE, size - (chunk << CHUNK_BITS));
+            employeeIDColumn.put(employeeIDs[chunk], 0, count);
+            projectIDColumn.put(projectIDs[chunk], 0, count);
+            startDayColumn.put(startDays[chunk], 0, count);
+            endDayColumn.put(endDays[chunk], 0, count);
+        }
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    public int getEmployeeID(int row) {
+        return employeeIDs[row >>> CHUNK_BITS][row & CHUNK_MASK];
+    }
+
+    public int getProjectID(int row) {
+        return projectIDs[row >>> CHUNK_BITS][row & CHUNK_MASK];
+    }
+
+    public int getStartDay(int row) {
+        return startDays[row >>> CHUNK_BITS][row & CHUNK_MASK];
+    }
+
+    public int getEndDay(int row) {
+        return endDays[row >>> CHUNK_BITS][row & CHUNK_MASK];
+    }
+}
@@ -0,0 +1,136 @@
+package com.rosenhristov.model;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static com.rosenhristov.model.PairTotals.*;
+import static java.util.Objects.isNull;
+
+/**
+ * Compact index of the project collaborations per pair of coworkers. The collaborations are added as they
+ * are found and, once build() is called, they are grouped by pair: the packed pair keys are sorted in a
+ * primitive array and every pair points to the range of its collaborations in the parallel arrays of
+ * project IDs and days. Looking up the collaborations of a pair is a binary search, so the details behind
+ * any pair can be listed without comparing the employees' projects again.
+ */
+public class CollaborationIndex extends Model {
+
+    private static final int INITIAL_CAPACITY = 64;
+
+    private long[] collaborationKeys = new long[INITIAL_CAPACITY];
+    private int[] projectIDs = new int[INITIAL_CAPACITY];
+    private int[] daysWorked = new int[INITIAL_CAPACITY];
+    private int size;
+
+    private long[] pairKeys;
+    private int[] offsets;
+
+    private CollaborationIndex() {
+    }
+
+    public static CollaborationIndex create() {
+        return new CollaborationIndex();
+    }
+
+    /**
+     * Adds a collaboration found, the index should be built again before the next lookup
+     */
+    public void add(int employee1, int employee2, int projectID, int days) {
+        if (size == projectIDs.length) {
+            int capacity = size << 1;
+            collaborationKeys = Arrays.copyOf(collaborationKeys, capacity);
+            projectIDs = Arrays.copyOf(projectIDs, capacity);
+            daysWorked = Arrays.copyOf(daysWorked, capacity);
+        }
+        collaborationKeys[size] = pairKey(employee1, employee2);
+        projectIDs[size] = projectID;
+        daysWorked[size] = days;
+        size++;
+        pairKeys = null;
+    }
+
+    /**
+     * Groups the collaborations by pair: the distinct pair keys are sorted and the collaborations are
+     * placed in the ranges of their pairs by a counting sort, so nothing is boxed on the way.
+     * The order of the collaborations of a pair is the order they have been added in.
+     */
+    public CollaborationIndex build() {
+        long[] sortedKeys = Arrays.copyOf(collaborationKeys, size);
+        Arrays.sort(sortedKeys);
+        int pairs = 0;
+        for (int i = 0; i < size; i++) {
+            if (i == 0 || sortedKeys[i] != sortedKeys[i - 1]) {
+                sortedKeys[pairs++] = sortedKeys[i];
+            }
+        }
+        long[] builtPairKeys = Arrays.copyOf(sortedKeys, pairs);
+
+        int[] pairOfCollaboration = new int[size];
+        int[] builtOffsets = new int[pairs + 1];
+        for (int i = 0; i < size; i++) {
+            pairOfCollaboration[i] = Arrays.binarySearch(builtPairKeys, collaborationKeys[i]);
+            builtOffsets[pairOfCollaboration[i] + 1]++;
+        }
+        for (int pair = 0; pair < pairs; pair++) {
+            builtOffsets[pair + 1] += builtOffsets[pair];
+        }
+
+        int[] next = Arrays.copyOf(builtOffsets, pairs);
+        long[] groupedKeys = new long[Math.max(size, INITIAL_CAPACITY)];
+        int[] groupedProjectIDs = new int[groupedKeys.length];
+        int[] groupedDaysWorked = new int[groupedKeys.length];
+        for (int i = 0; i < size; i++) {
+            int position = next[pairOfCollaboration[i]]++;
+            groupedKeys[position] = collaborationKeys[i];
+            groupedProjectIDs[position] = projectIDs[i];
+            groupedDaysWorked[position] = daysWorked[i];
+        }
+        collaborationKeys = groupedKeys;
+        projectIDs = groupedProjectIDs;
+        daysWorked = groupedDaysWorked;
+        pairKeys = builtPairKeys;
+        offsets = builtOffsets;
+        return this;
+    }
+
+    /**
+     * @return  List of ProjectCollaboration instances of the pair, the lower employee ID first,
+     *          or an empty list if the employees have never worked together
+     */
+    public List<ProjectCollaboration> getCollaborations(int employee1, int employee2) {
+        if (isNull(pairKeys)) {
+            build();
+        }
+        int pair = Arrays.binarySearch(pairKeys, pairKey(employee1, employee2));
+        if (pair < 0) {
+            return List.of();
+        }
+        List<ProjectCollaboration> collaborations = new ArrayList<>(offsets[pair + 1] - offsets[pair]);
+        for (int i = offsets[pair]; i < offsets[pair + 1]; i++) {
+            collaborations.add(new ProjectCollaboration(
+                    getEmployee1(collaborationKeys[i]),
+                    getEmployee2(collaborationKeys[i]),
+                    projectIDs[i],
+                    daysWorked[i]));
+        }
+        return collaborations;
+    }
+
+    /**
+     * @return the number of collaborations in the index
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * @return the number of distinct pairs of coworkers in the index
+     */
+    public int getPairs() {
+        if (isNull(pairKeys)) {
+            build();
+        }
+        return pairKeys.length;
+    }
+}
@@ -0,0 +1,235 @@
+package com.rosenhristov.model;
+
+import org.apache.commons.lang3.tuple.ImmutablePair;
+import org.apache.commons.lang3.tuple.Pair;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Open-addressing hash map of the total number of days every pair of coworkers has worked together.
+ * A pair is packed in a single long key (the lower employee ID in the high 32 bits, the higher one in
+ * the low 32 bits) and the totals are kept in a parallel int array, so a pair costs 12 bytes per slot
+ * instead of a boxed Pair key, a boxed Integer value and a map entry. The totals are accumulated in place
+ * as the collaborations are found.
+ */
+public class PairTotals extends Model {
+
+    /**
+     * Marks a free slot. It is never a real key, because the two employees of a pair are never the same one.
+     */
+    private static final long EMPTY_KEY = -1L;
+
+    private static final int INITIAL_CAPACITY = 64;
+    private static final int MAX_LOAD_PERCENT = 70;
+
+    private long[] keys;
+    private int[] totals;
+    private int size;
+    private int resizeThreshold;
+
+    private PairTotals(int capacity) {
+        allocate(capacity);
+    }
+
+    public static PairTotals create() {
+        return new PairTotals(INITIAL_CAPACITY);
+    }
+
+    /**
+     * @param expectedPairs the number of pairs the map should hold without growing
+     */
+    public static PairTotals create(int expectedPairs) {
+        long slots = (long) expectedPairs * 100 / MAX_LOAD_PERCENT + 1;
+        return new PairTotals((int) Math.min(1 << 30, Math.max(INITIAL_CAPACITY, Long.highestOneBit(slots) << 1)));
+    }
+
+    /**
+     * Packs the pair of employees in a key, the order of the IDs does not matter
+     */
+    public static long pairKey(int employee1, int employee2) {
+        return ((long) Math.min(employee1, employee2) << 32) | (Math.max(employee1, employee2) & 0xFFFFFFFFL);
+    }
+
+    public static int getEmployee1(long pairKey) {
+        return (int) (pairKey >>> 32);
+    }
+
+    public static int getEmployee2(long pairKey) {
+        return (int) pairKey;
+    }
+
+    /**
+     * Adds the days the two employees have worked together in one more project to their total.
+     * Negative days take a collaboration back, a pair whose total drops to 0 is removed.
+     */
+    public void add(int employee1, int employee2, int daysWorked) {
+        add(pairKey(employee1, employee2), daysWorked);
+    }
+
+    private void add(long key, int daysWorked) {
+        int slot = findSlot(keys, key);
+        if (keys[slot] == key) {
+            totals[slot] += daysWorked;
+            if (totals[slot] == 0) {
+                removeAt(slot);
+            }
+            return;
+        }
+        if (daysWorked == 0) {
+            return;
+        }
+        keys[slot] = key;
+        totals[slot] = daysWorked;
+        if (++size > resizeThreshold) {
+            grow();
+        }
+    }
+
+    /**
+     * Adds the totals of another map to the totals of this one, e.g. to merge the partial totals of two workers
+     */
+    public PairTotals addAll(PairTotals other) {
+        for (int slot = 0; slot < other.keys.length; slot++) {
+            if (other.keys[slot] != EMPTY_KEY) {
+                add(other.keys[slot], other.totals[slot]);
+            }
+        }
+        return this;
+    }
+
+    /**
+     * @return the total days the employees have worked together or 0 if they have never worked together
+     */
+    public int get(int employee1, int employee2) {
+        long key = pairKey(employee1, employee2);
+        int slot = findSlot(keys, key);
+        return keys[slot] == key ? totals[slot] : 0;
+    }
+
+    /**
+     * @return the longest total or 0 if there are no pairs
+     */
+    public int getMaxTotal() {
+        int maxTotal = 0;
+        for (int slot = 0; slot < keys.length; slot++) {
+            if (keys[slot] != EMPTY_KEY && totals[slot] > maxTotal) {
+                maxTotal = totals[slot];
+            }
+        }
+        return maxTotal;
+    }
+
+    /**
+     * Hands every pair and its total to the consumer, in no particular order
+     */
+    public void forEach(PairTotalConsumer consumer) {
+        for (int slot = 0; slot < keys.length; slot++) {
+            if (keys[slot] != EMPTY_KEY) {
+                consumer.accept(getEmployee1(keys[slot]), getEmployee2(keys[slot]), totals[slot]);
+            }
+        }
+    }
+
+    /**
+     * @return a boxed copy of the totals, meant for small maps and for the callers of the Map based API
+     */
+    public Map<Pair<Integer, Integer>, Integer> toMap() {
+        Map<Pair<Integer, Integer>, Integer> map = new HashMap<>();
+        forEach((employee1, employee2, total) -> map.put(ImmutablePair.of(employee1, employee2), total));
+        return map;
+    }
+
+    /**
+     * Removes every pair and keeps the capacity, e.g. to fill the map again after its totals have been spilled
+     */
+    public void clear() {
+        Arrays.fill(keys, EMPTY_KEY);
+        Arrays.fill(totals, 0);
+        size = 0;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    /**
+     * @return the slot holding the key or the free slot it should be put in (linear probing)
+     */
+    private static int findSlot(long[] keys, long key) {
+        int mask = keys.length - 1;
+        int slot = hash(key) & mask;
+        while (keys[slot] != EMPTY_KEY && keys[slot] != key) {
+            slot = (slot + 1) & mask;
+        }
+        return slot;
+    }
+
+    /**
+     * Spreads the bits of the key (the finalizer of MurmurHash3), since the employee IDs are often sequential
+     */
+    private static int hash(long key) {
+        key ^= key >>> 33;
+        key *= 0xff51afd7ed558ccdL;
+        key ^= key >>> 33;
+        key *= 0xc4ceb9fe1a85ec53L;
+        key ^= key >>> 33;
+        return (int) key;
+    }
+
+    /**
+     * Frees the slot and moves back the keys probed past it (backward shift deletion),
+     * so the probe sequences stay unbroken without leaving tombstones
+     */
+    private void removeAt(int slot) {
+        int mask = keys.length - 1;
+        int free = slot;
+        int next = (free + 1) & mask;
+        while (keys[next] != EMPTY_KEY) {
+            int home = hash(keys[next]) & mask;
+            // the key may move to the free slot only if the free slot lies between its home slot and its slot
+            if (((next - home) & mask) >= ((next - free) & mask)) {
+                keys[free] = keys[next];
+                totals[free] = totals[next];
+                free = next;
+            }
+            next = (next + 1) & mask;
+        }
+        keys[free] = EMPTY_KEY;
+        totals[free] = 0;
+        size--;
+    }
+
+    private void allocate(int capacity) {
+        keys = new long[capacity];
+        Arrays.fill(keys, EMPTY_KEY);
+        totals = new int[capacity];
+        resizeThreshold = (int) ((long) capacity * MAX_LOAD_PERCENT / 100);
+    }
+
+    private void grow() {
+        long[] oldKeys = keys;
+        int[] oldTotals = totals;
+        allocate(oldKeys.length << 1);
+        for (int slot = 0; slot < oldKeys.length; slot++) {
+            if (oldKeys[slot] != EMPTY_KEY) {
+                int newSlot = findSlot(keys, oldKeys[slot]);
+                keys[newSlot] = oldKeys[slot];
+                totals[newSlot] = oldTotals[slot];
+            }
+        }
+    }
+
+    /**
+     * Receives a pair of coworkers, the lower ID first, and the total days they have worked together
+     */
+    @FunctionalInterface
+    public interface PairTotalConsumer {
+        void accept(int employee1, int employee2, int total);
+    }
+}
@@ -49,9 +49,13 @@ public class ProjectCollaboration extends Model {
         this.daysWorked = daysWorked;
     }
 
+    /**
+     * @return the values of the collaboration as strings, see ResultExporter to write many collaborations
+     */
     public String[] stringify() {
-        return String.format("%d, %d, %d, %d", employee1, employee2, projectID, daysWorked)
-                     .split(", ");
+        return new String[]{
+                Integer.toString(employee1), Integer.toString(employee2),
+                Integer.toString(projectID), Integer.toString(daysWorked)};
     }
         @Override
     public String toString() {
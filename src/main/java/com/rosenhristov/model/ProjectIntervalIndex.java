@@ -0,0 +1,103 @@
+package com.rosenhristov.model;
+
+/**
+ * Interval index of the assignments in one project, answering which employees have worked in the project
+ * during a window of days in O(log n + k) time, k being the number of the assignments found.
+ *
+ * The index is an augmented interval tree laid out implicitly over the assignments sorted by start date:
+ * the middle assignment of every range is the root of the range and stores the latest end date within it.
+ * A query skips the ranges that end before the window and the ranges that start after it, so it visits
+ * only the paths to the assignments it reports. The index is a snapshot of the timeline it is built from.
+ */
+public class ProjectIntervalIndex extends Model {
+
+    private final int projectID;
+    private final int[] employeeIDs;
+    private final int[] startDays;
+    private final int[] endDays;
+    private final int[] maxEndDays;
+
+    private ProjectIntervalIndex(ProjectTimeline timeline) {
+        int size = timeline.size();
+        this.projectID = timeline.getProjectID();
+        this.employeeIDs = new int[size];
+        this.startDays = new int[size];
+        this.endDays = new int[size];
+        this.maxEndDays = new int[size];
+        for (int i = 0; i < size; i++) {
+            employeeIDs[i] = timeline.getEmployeeID(i);
+            startDays[i] = timeline.getStartDay(i);
+            endDays[i] = timeline.getEndDay(i);
+        }
+        augment(0, size);
+    }
+
+    /**
+     * @param timeline the assignments in the project sorted by start date
+     */
+    public static ProjectIntervalIndex of(ProjectTimeline timeline) {
+        return new ProjectIntervalIndex(timeline);
+    }
+
+    /**
+     * Stores the latest end date of every range in the root of the range
+     *
+     * @return the latest end date of the range
+     */
+    private int augment(int from, int to) {
+        if (from >= to) {
+            return Integer.MIN_VALUE;
+        }
+        int root = (from + to) >>> 1;
+        maxEndDays[root] = Math.max(endDays[root], Math.max(augment(from, root), augment(root + 1, to)));
+        return maxEndDays[root];
+    }
+
+    /**
+     * Finds the assignments overlapping the window, i.e. starting before the window ends and ending
+     * after the window starts, the same way two employees' periods are checked for overlap
+     *
+     * @param fromDay the first day of the window as an epoch day
+     * @param toDay the day the window ends as an epoch day, not included
+     * @param consumer receives the assignments found, in the order of their start dates
+     */
+    public void findOverlapping(int fromDay, int toDay, AssignmentVisitor consumer) {
+        if (fromDay < toDay) {
+            findOverlapping(0, employeeIDs.length, fromDay, toDay, consumer);
+        }
+    }
+
+    private void findOverlapping(int from, int to, int fromDay, int toDay, AssignmentVisitor consumer) {
+        if (from >= to) {
+            return;
+        }
+        int root = (from + to) >>> 1;
+        if (maxEndDays[root] <= fromDay) {
+            return; // every assignment in the range has ended before the window starts
+        }
+        findOverlapping(from, root, fromDay, toDay, consumer);
+        if (startDays[root] >= toDay) {
+            return; // the root and the assignments after it start after the window ends
+        }
+        if (endDays[root] > fromDay && startDays[root] < endDays[root]) {
+            consumer.accept(employeeIDs[root], startDays[root], endDays[root]);
+        }
+        findOverlapping(root + 1, to, fromDay, toDay, consumer);
+    }
+
+    public int getProjectID() {
+        return projectID;
+    }
+
+    public int size() {
+        return employeeIDs.length;
+    }
+
+    /**
+     * Receives an assignment found by the index: the employee and the period worked in the project
+     */
+    @FunctionalInterface
+    public interface AssignmentVisitor {
+        void accept(int employeeID, int startDay, int endDay);
+    }
+}
@@ -0,0 +1,184 @@
+package com.rosenhristov.model;
+
+import java.util.Arrays;
+
+/**
+ * Holds the assignments of all employees who have worked in one project. Start and end dates are kept as
+ * epoch days in parallel primitive arrays, so the timeline can be sorted by start date and swept without
+ * creating an object per assignment.
+ */
+public class ProjectTimeline extends Model {
+
+    private static final int INITIAL_CAPACITY = 8;
+
+    private final int projectID;
+
+    private int[] employeeIDs;
+    private int[] startDays;
+    private int[] endDays;
+    private int size;
+
+    private ProjectTimeline(int projectID) {
+        this.projectID = projectID;
+        this.employeeIDs = new int[INITIAL_CAPACITY];
+        this.startDays = new int[INITIAL_CAPACITY];
+        this.endDays = new int[INITIAL_CAPACITY];
+    }
+
+    public static ProjectTimeline of(int projectID) {
+        return new ProjectTimeline(projectID);
+    }
+
+    public void addAssignment(int employeeID, int startDay, int endDay) {
+        if (size == employeeIDs.length) {
+            int capacity = Math.max(INITIAL_CAPACITY, size << 1);
+            employeeIDs = Arrays.copyOf(employeeIDs, capacity);
+            startDays = Arrays.copyOf(startDays, capacity);
+            endDays = Arrays.copyOf(endDays, capacity);
+        }
+        employeeIDs[size] = employeeID;
+        startDays[size] = startDay;
+        endDays[size] = endDay;
+        size++;
+    }
+
+    /**
+     * Keeps only the last assignment of every employee in the project, the way an Employee keeps
+     * only the last period read for a project
+     */
+    public ProjectTimeline keepLastAssignmentPerEmployee() {
+        // the employee ID in the high half and the index in the low half, so the assignments of one employee
+        // stay in the order they have been added
+        long[] keys = new long[size];
+        for (int i = 0; i < size; i++) {
+            keys[i] = (long) employeeIDs[i] << 32 | i;
+        }
+        Arrays.sort(keys);
+
+        int kept = 0;
+        int[] lastAssignments = new int[size];
+        for (int i = 0; i < size; i++) {
+            if (i == size - 1 || keys[i] >> 32 != keys[i + 1] >> 32) {
+                lastAssignments[kept++] = (int) keys[i];
+            }
+        }
+        if (kept < size) {
+            Arrays.sort(lastAssignments, 0, kept);
+            reorder(lastAssignments, kept);
+        }
+        return this;
+    }
+
+    /**
+     * Sorts the assignments by start date, the order the sweep line expects them in.
+     * The three arrays are reordered together through a permutation of indexes.
+     */
+    public ProjectTimeline sortByStartDate() {
+        // the start day in the high half and the index in the low half, so a sort of primitives sorts the indexes
+        // and the index keeps the assignments starting on the same day in the order they have been added
+        long[] keys = new long[size];
+        for (int i = 0; i < size; i++) {
+            keys[i] = (long) startDays[i] << 32 | i;
+        }
+        Arrays.sort(keys);
+
+        int[] sortedAssignments = new int[size];
+        for (int i = 0; i < size; i++) {
+            sortedAssignments[i] = (int) keys[i];
+        }
+        reorder(sortedAssignments, size);
+        return this;
+    }
+
+    /**
+     * Puts the assignment of the employee in its place by start date in a timeline already sorted by
+     * sortByStartDate(), replacing the assignment the employee had in the project before, if any
+     */
+    public ProjectTimeline putAssignment(int employeeID, int startDay, int endDay) {
+        int previous = indexOf(employeeID);
+        if (previous >= 0) {
+            removeAt(previous);
+        }
+        int index = size;
+        while (index > 0 && startDays[index - 1] > startDay) {
+            index--;
+        }
+        addAssignment(employeeID, startDay, endDay);
+        System.arraycopy(employeeIDs, index, employeeIDs, index + 1, size - 1 - index);
+        System.arraycopy(startDays, index, startDays, index + 1, size - 1 - index);
+        System.arraycopy(endDays, index, endDays, index + 1, size - 1 - index);
+        employeeIDs[index] = employeeID;
+        startDays[index] = startDay;
+        endDays[index] = endDay;
+        return this;
+    }
+
+    /**
+     * Removes the assignment of the employee if it is exactly the given period
+     *
+     * @return true if the assignment has been found and removed
+     */
+    public boolean removeAssignment(int employeeID, int startDay, int endDay) {
+        int index = indexOf(employeeID);
+        if (index < 0 || startDays[index] != startDay || endDays[index] != endDay) {
+            return false;
+        }
+        removeAt(index);
+        return true;
+    }
+
+    private int indexOf(int employeeID) {
+        for (int i = 0; i < size; i++) {
+            if (employeeIDs[i] == employeeID) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    private void removeAt(int index) {
+        System.arraycopy(employeeIDs, index + 1, employeeIDs, index, size - 1 - index);
+        System.arraycopy(startDays, index + 1, startDays, index, size - 1 - index);
+        System.arraycopy(endDays, index + 1, endDays, index, size - 1 - index);
+        size--;
+    }
+
+    private void reorder(int[] assignments, int count) {
+        int[] reorderedEmployeeIDs = new int[count];
+        int[] reorderedStartDays = new int[count];
+        int[] reorderedEndDays = new int[count];
+        for (int i = 0; i < count; i++) {
+            reorderedEmployeeIDs[i] = employeeIDs[assignments[i]];
+            reorderedStartDays[i] = startDays[assignments[i]];
+            reorderedEndDays[i] = endDays[assignments[i]];
+        }
+        employeeIDs = reorderedEmployeeIDs;
+        startDays = reorderedStartDays;
+        endDays = reorderedEndDays;
+        size = count;
+    }
+
+    public int getProjectID() {
+        return projectID;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    public int getEmployeeID(int index) {
+        return employeeIDs[index];
+    }
+
+    public int getStartDay(int index) {
+        return startDays[index];
+    }
+
+    public int getEndDay(int index) {
+        return endDays[index];
+    }
+}
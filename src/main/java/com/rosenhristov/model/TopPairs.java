@@ -0,0 +1,157 @@
+package com.rosenhristov.model;
+
+import org.apache.commons.lang3.tuple.ImmutablePair;
+import org.apache.commons.lang3.tuple.Pair;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import static com.rosenhristov.model.PairTotals.*;
+
+/**
+ * Keeps the K pairs of coworkers with the longest totals out of any number of pairs offered to it.
+ * The pairs are kept in a bounded min-heap of packed pair keys and int totals, the root being the weakest
+ * pair kept so far, so offering a pair costs O(log K) and the heap never holds more than K entries.
+ * Pairs with equal totals are ranked by their IDs, the lower IDs first, so the result does not depend
+ * on the order the pairs are offered in.
+ */
+public class TopPairs extends Model {
+
+    private final long[] keys;
+    private final int[] totals;
+    private int size;
+
+    private TopPairs(int k) {
+        this.keys = new long[k];
+        this.totals = new int[k];
+    }
+
+    /**
+     * @param k the number of pairs to be kept
+     */
+    public static TopPairs of(int k) {
+        if (k < 1) {
+            throw new IllegalArgumentException("At least one collaboration should be requested.");
+        }
+        return new TopPairs(k);
+    }
+
+    public void offer(int employee1, int employee2, int total) {
+        offer(pairKey(employee1, employee2), total);
+    }
+
+    private void offer(long key, int total) {
+        if (size < keys.length) {
+            keys[size] = key;
+            totals[size] = total;
+            siftUp(size++);
+        } else if (isWeaker(keys[0], totals[0], key, total)) {
+            keys[0] = key;
+            totals[0] = total;
+            siftDown(0);
+        }
+    }
+
+    /**
+     * Offers every pair of the totals, i.e. O(P log K) for P pairs
+     */
+    public TopPairs offerAll(PairTotals pairTotals) {
+        pairTotals.forEach(this::offer);
+        return this;
+    }
+
+    /**
+     * Hands the pairs kept to the consumer starting with the longest total
+     */
+    public void forEachRanked(PairTotalConsumer consumer) {
+        long[] rankedKeys = new long[size];
+        int[] rankedTotals = new int[size];
+        TopPairs heap = copy();
+        for (int rank = size - 1; rank >= 0; rank--) {
+            rankedKeys[rank] = heap.keys[0];
+            rankedTotals[rank] = heap.totals[0];
+            heap.removeRoot();
+        }
+        for (int rank = 0; rank < size; rank++) {
+            consumer.accept(getEmployee1(rankedKeys[rank]), getEmployee2(rankedKeys[rank]), rankedTotals[rank]);
+        }
+    }
+
+    /**
+     * @return the pairs kept and their totals, iterated in the order of their rank
+     */
+    public Map<Pair<Integer, Integer>, Integer> toRankedMap() {
+        Map<Pair<Integer, Integer>, Integer> rankedMap = new LinkedHashMap<>();
+        forEachRanked((employee1, employee2, total) -> rankedMap.put(ImmutablePair.of(employee1, employee2), total));
+        return rankedMap;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    private TopPairs copy() {
+        TopPairs copy = new TopPairs(keys.length);
+        System.arraycopy(keys, 0, copy.keys, 0, size);
+        System.arraycopy(totals, 0, copy.totals, 0, size);
+        copy.size = size;
+        return copy;
+    }
+
+    private void removeRoot() {
+        size--;
+        keys[0] = keys[size];
+        totals[0] = totals[size];
+        siftDown(0);
+    }
+
+    private void siftUp(int index) {
+        while (index > 0) {
+            int parent = (index - 1) >>> 1;
+            if (!isWeaker(keys[index], totals[index], keys[parent], totals[parent])) {
+                return;
+            }
+            swap(index, parent);
+            index = parent;
+        }
+    }
+
+    private void siftDown(int index) {
+        while (true) {
+            int weakest = index;
+            int left = (index << 1) + 1;
+            int right = left + 1;
+            if (left < size && isWeaker(keys[left], totals[left], keys[weakest], totals[weakest])) {
+                weakest = left;
+            }
+            if (right < size && isWeaker(keys[right], totals[right], keys[weakest], totals[weakest])) {
+                weakest = right;
+            }
+            if (weakest == index) {
+                return;
+            }
+            swap(index, weakest);
+            index = weakest;
+        }
+    }
+
+    private void swap(int i, int j) {
+        long key = keys[i];
+        keys[i] = keys[j];
+        keys[j] = key;
+        int total = totals[i];
+        totals[i] = totals[j];
+        totals[j] = total;
+    }
+
+    /**
+     * A pair is weaker than another one if its total is shorter or, for equal totals, if its IDs are higher
+     */
+    private static boolean isWeaker(long key, int total, long otherKey, int otherTotal) {
+        return total < otherTotal || (total == otherTotal && key > otherKey);
+    }
+}
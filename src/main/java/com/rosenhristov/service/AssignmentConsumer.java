@@ -0,0 +1,11 @@
+package com.rosenhristov.service;
+
+/**
+ * Receives the rows of a CSV file already decoded to primitives. The dates are passed as epoch days
+ * and a NULL end date is passed as the epoch day of today.
+ */
+@FunctionalInterface
+public interface AssignmentConsumer {
+
+    void accept(int employeeID, int projectID, int startDay, int endDay);
+}
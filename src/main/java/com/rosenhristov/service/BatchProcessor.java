@@ -0,0 +1,182 @@
+package com.rosenhristov.service;
+
+import org.apache.commons.lang3.tuple.Pair;
+
+import java.io.File;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.util.Map;
+
+import static com.rosenhristov.service.ResultExporter.CSV_FORMAT;
+import static com.rosenhristov.service.ResultExporter.JSON_FORMAT;
+import static com.rosenhristov.service.ResultExporter.TEXT_FORMAT;
+import static com.rosenhristov.utils.Constants.DEFAULT_SPILL_MEMORY_BUDGET;
+import static java.util.Objects.isNull;
+
+/**
+ * Headless batch mode of the application: reads the CSV files given on the command line and writes the
+ * longest collaborations, or the top K ones, as text, CSV or JSON to stdout or to a file. It uses no Swing
+ * or AWT class, so it runs on servers without a display, and the results are written as they are found
+ * through the buffer of a ResultExporter.
+ *
+ * Arguments: path [--top K] [--format text|csv|json] [--output file] [--cache directory] [--pipeline]
+ *            [--metrics text|json] [--spill directory]
+ * The path can be a '.csv' file, a directory or a glob pattern, see CSVFileSetReader.
+ * The cache directory keeps binary snapshots of the files read, see SnapshotCache.
+ * The pipeline option reads and processes a single file in concurrent stages, see ProcessingPipeline.
+ * The metrics option writes the metrics of the stages of the run to stderr, see RunMetrics.
+ * The spill directory keeps the pair totals that exceed the memory budget, see SpillingPairAggregator.
+ */
+public class BatchProcessor {
+
+    public static final String USAGE = "Usage: CSVFileProcessorApp path [--top K] [--format text|csv|json] [--output file] [--cache directory] [--pipeline] [--metrics text|json] [--spill directory]";
+
+    private String filePath;
+    private int topK;
+    private String format = TEXT_FORMAT;
+    private String outputPath;
+    private String cacheDirectory;
+    private boolean pipeline;
+    private String metricsFormat;
+    private String spillDirectory;
+
+    private BatchProcessor() {
+    }
+
+    /**
+     * @param args the command line arguments
+     * @throws IllegalArgumentException if the arguments are not valid
+     */
+    public static BatchProcessor of(String[] args) {
+        BatchProcessor batchProcessor = new BatchProcessor();
+        for (int i = 0; i < args.length; i++) {
+            switch (args[i]) {
+                case "--top":
+                    batchProcessor.topK = parseTopK(valueOf(args, ++i));
+                    break;
+                case "--format":
+                    batchProcessor.format = parseOutputFormat(valueOf(args, ++i));
+                    break;
+                case "--output":
+                    batchProcessor.outputPath = valueOf(args, ++i);
+                    break;
+                case "--cache":
+                    batchProcessor.cacheDirectory = valueOf(args, ++i);
+                    break;
+                case "--pipeline":
+                    batchProcessor.pipeline = true;
+                    break;
+                case "--metrics":
+                    batchProcessor.metricsFormat = parseMetricsFormat(valueOf(args, ++i));
+                    break;
+                case "--spill":
+                    batchProcessor.spillDirectory = valueOf(args, ++i);
+                    break;
+                default:
+                    if (args[i].startsWith("--") || !isNull(batchProcessor.filePath)) {
+                        throw new IllegalArgumentException("Unexpected argument " + args[i] + "\n" + USAGE);
+                    }
+                    batchProcessor.filePath = args[i];
+            }
+        }
+        if (isNull(batchProcessor.filePath)) {
+            throw new IllegalArgumentException("No CSV file path provided\n" + USAGE);
+        }
+        return batchProcessor;
+    }
+
+    private static String valueOf(String[] args, int index) {
+        if (index >= args.length) {
+            throw new IllegalArgumentException("Missing value of " + args[index - 1] + "\n" + USAGE);
+        }
+        return args[index];
+    }
+
+    private static int parseTopK(String value) {
+        try {
+            int topK = Integer.parseInt(value);
+            if (topK > 0) {
+                return topK;
+            }
+        } catch (NumberFormatException e) {
+            // reported below
+        }
+        throw new IllegalArgumentException("The top K should be a positive number, not " + value + "\n" + USAGE);
+    }
+
+    private static String parseOutputFormat(String value) {
+        return value.equalsIgnoreCase(CSV_FORMAT) ? CSV_FORMAT : parseMetricsFormat(value);
+    }
+
+    private static String parseMetricsFormat(String value) {
+        if (!value.equalsIgnoreCase(TEXT_FORMAT) && !value.equalsIgnoreCase(JSON_FORMAT)) {
+            throw new IllegalArgumentException("Not a supported output format: " + value + "\n" + USAGE);
+        }
+        return value.toLowerCase();
+    }
+
+    /**
+     * Reads the file, finds the collaborations and writes them to the output
+     */
+    public void run() throws IOException {
+        RunMetrics metrics = isNull(metricsFormat) ? RunMetrics.disabled() : RunMetrics.create();
+        DataProcessor dataProcessor = pipeline
+                ? ProcessingPipeline.of(filePath).withMetrics(metrics).run()
+                : readDataProcessor(metrics);
+        if (!isNull(spillDirectory)) {
+            dataProcessor.withSpilling(new File(spillDirectory), DEFAULT_SPILL_MEMORY_BUDGET);
+        }
+        Map<Pair<Integer, Integer>, Integer> collaborations = topK > 0
+                ? dataProcessor.getTopCollaborations(topK)
+                : dataProcessor.getLongestProjectCollaboration();
+
+        try (ResultExporter exporter = isNull(outputPath)
+                ? ResultExporter.of(System.out, format)
+                : ResultExporter.of(new File(outputPath), format)) {
+            exporter.exportReport(filePath, collaborations, dataProcessor);
+        }
+        if (metrics.isEnabled()) {
+            System.err.println(metricsFormat.equals(JSON_FORMAT) ? metrics.toJson() : metrics.toString());
+        }
+    }
+
+    private DataProcessor readDataProcessor(RunMetrics metrics) throws FileNotFoundException {
+        CSVFileSetReader csvFileSetReader = CSVFileSetReader.of(filePath).withMetrics(metrics);
+        if (!isNull(cacheDirectory)) {
+            csvFileSetReader.withSnapshotCache(new File(cacheDirectory));
+        }
+        return DataProcessor.of(csvFileSetReader.readTable()).withMetrics(metrics);
+    }
+
+    public String getFilePath() {
+        return filePath;
+    }
+
+    public int getTopK() {
+        return topK;
+    }
+
+    public String getFormat() {
+        return format;
+    }
+
+    public String getOutputPath() {
+        return outputPath;
+    }
+
+    public String getCacheDirectory() {
+        return cacheDirectory;
+    }
+
+    public boolean isPipeline() {
+        return pipeline;
+    }
+
+    public String getMetricsFormat() {
+        return metricsFormat;
+    }
+
+    public String getSpillDirectory() {
+        return spillDirectory;
+    }
+}
@@ -2,13 +2,22 @@ package com.rosenhristov.service;
 
 import com.opencsv.CSVReader;
 import com.opencsv.exceptions.CsvValidationException;
+import com.rosenhristov.mapper.DateParser;
 import com.rosenhristov.mapper.Mapper;
+import com.rosenhristov.model.AssignmentTable;
 import com.rosenhristov.model.CSVRowData;
 import org.jetbrains.annotations.TestOnly;
 
 import java.io.*;
 
 import java.util.*;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
 
 import static com.rosenhristov.utils.Constants.*;
 import static com.rosenhristov.utils.Utils.*;
@@ -22,9 +31,20 @@ public class CSVFileReader {
 
     private String dateFormat;
 
+    private DateParser dateParser;
+
+    private SnapshotCache snapshotCache;
+
+    private int parallelism = 1;
+
+    private RunMetrics metrics = RunMetrics.disabled();
+
+    private final boolean compressed;
+
     private CSVFileReader(File csvFile) {
         this.csvFile = csvFile;
         this.mapper = Mapper.create();
+        this.compressed = CompressedInput.isCompressed(csvFile);
     }
 
     private CSVFileReader(String filePath) {
@@ -56,31 +76,41 @@ public class CSVFileReader {
     public List<CSVRowData> read() {
         List<CSVRowData> rowData = new LinkedList<>();
         String[] line;
-        FileReader fileReader = null;
+        Reader fileReader = null;
         CSVReader csvReader = null;
         try {
-            fileReader = new FileReader(this.csvFile);
+            fileReader = openReader();
             csvReader = new CSVReader(fileReader);
 
             List<List<String>> rowStrings = new LinkedList<>();
-            do {
-                line = csvReader.readNext();
-                if(isValidLine(line) && !Arrays.toString(line).equals(TITLE_ROW)) {
-                    rowStrings.add(List.of(line));
-                }
-            } while(!isNull(line));
-
-            dateFormat = DateAnalyst
-                    .of(rowStrings)
-                    .identifyDateFormat()
-                    .getDateFormat();
-            mapper = Mapper.create(dateFormat);
-
-            for (List<String> cells : rowStrings) {
-                CSVRowData CSVRowData = mapper.mapCells(cells);
-                if (!isNull(CSVRowData)) {
-                    rowData.add(CSVRowData);
+            try (RunMetrics.Stage stage = metrics.start(RunMetrics.READ)) {
+                do {
+                    line = csvReader.readNext();
+                    if(isValidLine(line) && !Arrays.toString(line).equals(TITLE_ROW)) {
+                        rowStrings.add(List.of(line));
+                    }
+                } while(!isNull(line));
+                stage.addRows(rowStrings.size()).addBytesRead(csvFile.length());
+            }
+
+            try (RunMetrics.Stage stage = metrics.start(RunMetrics.DATE_DETECTION)) {
+                DateAnalyst dateAnalyst = DateAnalyst
+                        .of(rowStrings)
+                        .identifyDateFormat();
+                dateFormat = dateAnalyst.getDateFormat();
+                dateParser = dateAnalyst.getDateParser();
+                mapper = Mapper.create(dateParser);
+                stage.addRows(rowStrings.size());
+            }
+
+            try (RunMetrics.Stage stage = metrics.start(RunMetrics.MAPPING)) {
+                for (List<String> cells : rowStrings) {
+                    CSVRowData CSVRowData = mapper.mapCells(cells);
+                    if (!isNull(CSVRowData)) {
+                        rowData.add(CSVRowData);
+                    }
                 }
+                stage.addRows(rowData.size());
             }
         } catch (IOException ioe) {
             throw new RuntimeException(FILE_READING_IO_EXCEPTION_MESSAGE + this.csvFile.getName(), ioe);
@@ -101,6 +131,378 @@ public class CSVFileReader {
         return rowData;
     }
 
+    /**
+     * Streaming read mode: the date format is identified from the first rows of the file
+     * (see DATE_FORMAT_SAMPLE_ROWS) and every row is mapped and handed to the consumer as soon as
+     * it is read, so the file is never held in memory as a whole.
+     *
+     * @param consumer receives the mapped rows in the order they appear in the file
+     */
+    public void read(Consumer<CSVRowData> consumer) {
+        try (Stream<CSVRowData> rows = stream()) {
+            rows.forEach(consumer);
+        }
+    }
+
+    /**
+     * Streaming read mode: returns a lazy stream of the mapped rows of the file. The file stays
+     * open until the stream is closed, so it should be used in a try-with-resources block.
+     *
+     * @return sequential stream of the mapped rows in the order they appear in the file
+     */
+    public Stream<CSVRowData> stream() {
+        RowIterator rowIterator = new RowIterator();
+        return StreamSupport
+                .stream(Spliterators.spliteratorUnknownSize(rowIterator, Spliterator.ORDERED | Spliterator.NONNULL), false)
+                .onClose(rowIterator::close);
+    }
+
+    /**
+     * Reads the file lazily, one valid line at a time. The first lines, at most DATE_FORMAT_SAMPLE_ROWS,
+     * are read in advance until the DateAnalyst identifies the date format, the rest is mapped as it is read.
+     * If the format is still ambiguous after them, the rest of the file is analysed by a reader of its own,
+     * so the lines read in advance never exceed the sample.
+     */
+    private class RowIterator implements Iterator<CSVRowData> {
+
+        private final Reader fileReader;
+        private final CSVReader csvReader;
+        private final Deque<List<String>> sampleRows = new ArrayDeque<>();
+        private final Mapper rowMapper;
+        private CSVRowData nextRow;
+
+        private RowIterator() {
+            try {
+                fileReader = openReader();
+            } catch (IOException ioe) {
+                throw new RuntimeException(FILE_READING_IO_EXCEPTION_MESSAGE + csvFile.getName(), ioe);
+            }
+            csvReader = new CSVReader(fileReader);
+            try {
+                DateAnalyst dateAnalyst = DateAnalyst.sampling(DATE_FORMAT_SAMPLE_ROWS);
+                List<String> cells = null;
+                while (dateAnalyst.needsMoreRows() && !isNull(cells = readCells(csvReader))) {
+                    sampleRows.add(cells);
+                    dateAnalyst.analyse(cells);
+                }
+                if (dateAnalyst.isAmbiguous() && !isNull(cells)) {
+                    analyseAfterSample(dateAnalyst, sampleRows.size());
+                }
+                identifyDateFormat(dateAnalyst);
+            } catch (RuntimeException e) {
+                close();
+                throw e;
+            }
+            rowMapper = Mapper.create(dateParser);
+        }
+
+        @Override
+        public boolean hasNext() {
+            while (isNull(nextRow)) {
+                List<String> cells = sampleRows.isEmpty() ? readCells(csvReader) : sampleRows.poll();
+                if (isNull(cells)) {
+                    return false;
+                }
+                nextRow = rowMapper.mapCells(cells);
+            }
+            return true;
+        }
+
+        @Override
+        public CSVRowData next() {
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+            CSVRowData row = nextRow;
+            nextRow = null;
+            return row;
+        }
+
+        private void close() {
+            try {
+                csvReader.close();
+                fileReader.close();
+            } catch (IOException e) {
+                throw new RuntimeException(FILE_READER_CLOSING_EXCEPTION_MESSAGE, e);
+            }
+        }
+    }
+
+    /**
+     * @return a reader of the characters of the file, decompressed on a thread of its own if it is compressed
+     */
+    private Reader openReader() throws IOException {
+        return compressed
+                ? new InputStreamReader(CompressedInput.of(csvFile))
+                : new FileReader(csvFile);
+    }
+
+    /**
+     * @return the cells of the next valid line, skipping the title row, or null at the end of the file
+     */
+    private List<String> readCells(CSVReader csvReader) {
+        try {
+            String[] line;
+            do {
+                line = csvReader.readNext();
+            } while (!isNull(line) && (!isValidLine(line) || Arrays.toString(line).equals(TITLE_ROW)));
+            return isNull(line) ? null : List.of(line);
+        } catch (IOException ioe) {
+            throw new RuntimeException(FILE_READING_IO_EXCEPTION_MESSAGE + csvFile.getName(), ioe);
+        } catch (CsvValidationException e) {
+            throw new RuntimeException(FILE_READING_CSV_EXCEPTION_MESSAGE + csvFile.getName(), e);
+        }
+    }
+
+    /**
+     * Analyses the lines after the sample of the streaming read mode on a reader of its own, the lines
+     * of the sample being skipped, until the date format is unambiguous or the file ends
+     */
+    private void analyseAfterSample(DateAnalyst dateAnalyst, int sampleRows) {
+        try (Reader fileReader = openReader();
+             CSVReader csvReader = new CSVReader(fileReader)) {
+            for (int row = 0; row < sampleRows; row++) {
+                readCells(csvReader);
+            }
+            analyseWhileAmbiguous(dateAnalyst, csvReader);
+        } catch (IOException ioe) {
+            throw new RuntimeException(FILE_READING_IO_EXCEPTION_MESSAGE + csvFile.getName(), ioe);
+        }
+    }
+
+    /**
+     * Keeps analysing the lines after the sample while the date format is ambiguous, e.g. when none of the
+     * days of the sample is greater than 12, so the format is rejected only if the whole file is ambiguous
+     */
+    private void analyseWhileAmbiguous(DateAnalyst dateAnalyst, CSVReader csvReader) {
+        List<String> cells;
+        while (dateAnalyst.isAmbiguous() && !isNull(cells = readCells(csvReader))) {
+            dateAnalyst.analyse(cells);
+        }
+    }
+
+    private void identifyDateFormat(DateAnalyst dateAnalyst) {
+        if (dateAnalyst.getAnalysedRows() == 0) {
+            dateFormat = null;
+            dateParser = null;
+            return;
+        }
+        dateAnalyst.identifyDateFormat();
+        dateFormat = dateAnalyst.getDateFormat();
+        dateParser = dateAnalyst.getDateParser();
+    }
+
+    /**
+     * Identifies the date format from the first rows of the file read with OpenCSV, the rows are analysed
+     * one by one until the format is unambiguous, past DATE_FORMAT_SAMPLE_ROWS rows only if it is ambiguous
+     */
+    private void identifyDateFormatFromSample() {
+        try (RunMetrics.Stage stage = metrics.start(RunMetrics.DATE_DETECTION);
+             Reader fileReader = openReader();
+             CSVReader csvReader = new CSVReader(fileReader)) {
+            DateAnalyst dateAnalyst = DateAnalyst.sampling(DATE_FORMAT_SAMPLE_ROWS);
+            List<String> cells;
+            while (dateAnalyst.needsMoreRows() && !isNull(cells = readCells(csvReader))) {
+                dateAnalyst.analyse(cells);
+            }
+            analyseWhileAmbiguous(dateAnalyst, csvReader);
+            identifyDateFormat(dateAnalyst);
+            stage.addRows(dateAnalyst.getAnalysedRows());
+        } catch (IOException ioe) {
+            throw new RuntimeException(FILE_READING_IO_EXCEPTION_MESSAGE + csvFile.getName(), ioe);
+        }
+    }
+
+    /**
+     * Memory-mapped read mode: the date format is identified from the first rows of the file and then
+     * the file is scanned byte by byte by the MappedCSVParser, which decodes the IDs and the dates without
+     * creating Strings. Only irregular lines, e.g. with quoted cells, are parsed by OpenCSV.
+     *
+     * @param consumer receives the decoded rows in the order they appear in the file
+     */
+    public void readMapped(AssignmentConsumer consumer) {
+        MappedCSVParser parser = createMappedParser();
+        if (compressed) {
+            parseCompressed(parser, consumer);
+        } else {
+            parser.parse(consumer);
+        }
+    }
+
+    /**
+     * Parses a compressed file, which cannot be mapped, from the stream of its bytes decompressed on a thread
+     * of its own, so the file is inflated while the rows inflated before are parsed
+     *
+     * @return the number of decompressed bytes parsed
+     */
+    private long parseCompressed(MappedCSVParser parser, AssignmentConsumer consumer) {
+        try (CompressedInput input = CompressedInput.of(csvFile)) {
+            return parser.parse(input, consumer);
+        }
+    }
+
+    /**
+     * @return a MappedCSVParser of the file with the parser of the date format identified from its first rows
+     */
+    MappedCSVParser createMappedParser() {
+        identifyDateFormatFromSample();
+        return MappedCSVParser.of(csvFile, dateParser);
+    }
+
+    /**
+     * Memory-mapped read mode returning the rows as CSVRowData instances
+     *
+     * @return the rows in the order they appear in the file
+     */
+    public List<CSVRowData> readMapped() {
+        List<CSVRowData> rowData = new ArrayList<>();
+        readMapped((employeeID, projectID, startDay, endDay) -> rowData.add(
+                new CSVRowData(employeeID, projectID, Mapper.toDate(startDay), Mapper.toDate(endDay))));
+        return rowData;
+    }
+
+    /**
+     * Memory-mapped read mode storing the rows straight into a columnar AssignmentTable,
+     * which DataProcessor consumes without any CSVRowData or java.util.Date instances.
+     * If a snapshot cache is set, an unchanged file is loaded from its snapshot instead of being parsed,
+     * and a parsed file is saved in the cache for the next read.
+     *
+     * @return the table of the rows in the order they appear in the file
+     */
+    public AssignmentTable readTable() {
+        if (!isNull(snapshotCache)) {
+            try (RunMetrics.Stage stage = metrics.start(RunMetrics.READ)) {
+                SnapshotCache.Snapshot snapshot = snapshotCache.load(csvFile);
+                if (!isNull(snapshot)) {
+                    dateFormat = snapshot.getDateFormat();
+                    dateParser = isNull(dateFormat) ? null : DateParser.compile(dateFormat);
+                    stage.addRows(snapshot.getAssignments().size());
+                    return snapshot.getAssignments();
+                }
+            }
+        }
+        AssignmentTable table = parallelism > 1 && !compressed ? readTableInRanges() : readTableInOrder();
+        if (!isNull(snapshotCache)) {
+            snapshotCache.save(csvFile, dateFormat, table);
+        }
+        return table;
+    }
+
+    private AssignmentTable readTableInOrder() {
+        MappedCSVParser parser = createMappedParser();
+        AssignmentTable table = AssignmentTable.create();
+        try (RunMetrics.Stage stage = metrics.start(RunMetrics.READ)) {
+            long bytesRead = csvFile.length();
+            if (compressed) {
+                bytesRead = parseCompressed(parser, table::add);
+            } else {
+                parser.parse(table::add);
+            }
+            stage.addRows(table.size()).addBytesRead(bytesRead);
+        }
+        return table;
+    }
+
+    /**
+     * Parallel read mode: the date format is identified from the first rows of the file, then the file is
+     * split into ranges of whole lines, one range per thread, at least PARALLEL_RANGE_MIN_SIZE bytes each.
+     * Every range is parsed by its own MappedCSVParser into its own block of rows, the DateParser being
+     * immutable it is shared by all of them, and the blocks are concatenated in the order of the file.
+     */
+    private AssignmentTable readTableInRanges() {
+        identifyDateFormatFromSample();
+        int ranges = (int) Math.min(parallelism, Math.max(1, csvFile.length() / PARALLEL_RANGE_MIN_SIZE));
+        long[] boundaries = MappedCSVParser.splitOnLines(csvFile, ranges);
+        if (boundaries.length == 2) {
+            return readRange(MappedCSVParser.of(csvFile, dateParser), 0, csvFile.length());
+        }
+        ExecutorService executor = Executors.newFixedThreadPool(boundaries.length - 1);
+        try {
+            List<Future<AssignmentTable>> blocks = new ArrayList<>(boundaries.length - 1);
+            for (int range = 0; range < boundaries.length - 1; range++) {
+                long from = boundaries[range];
+                long to = boundaries[range + 1];
+                blocks.add(executor.submit(() ->
+                        readRange(MappedCSVParser.of(csvFile, dateParser), from, to)));
+            }
+            List<AssignmentTable> parsedBlocks = new ArrayList<>(blocks.size());
+            for (Future<AssignmentTable> block : blocks) {
+                parsedBlocks.add(await(block, csvFile));
+            }
+            return AssignmentTable.concat(parsedBlocks);
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    private AssignmentTable readRange(MappedCSVParser parser, long from, long to) {
+        AssignmentTable block = AssignmentTable.create();
+        try (RunMetrics.Stage stage = metrics.start(RunMetrics.READ)) {
+            parser.parse(from, to, block::add);
+            stage.addRows(block.size()).addBytesRead(to - from);
+        }
+        return block;
+    }
+
+    /**
+     * @return the result of a task reading the file, rethrowing the exception the task has failed with
+     */
+    static <T> T await(Future<T> task, File csvFile) {
+        try {
+            return task.get();
+        } catch (InterruptedException ie) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException(FILE_READING_IO_EXCEPTION_MESSAGE + csvFile.getName(), ie);
+        } catch (ExecutionException ee) {
+            if (ee.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) ee.getCause();
+            }
+            throw new RuntimeException(FILE_READING_IO_EXCEPTION_MESSAGE + csvFile.getName(), ee.getCause());
+        }
+    }
+
+    /**
+     * Lets readTable() parse the file in ranges of lines on several threads, a compressed file is parsed
+     * in one go while it is inflated on a thread of its own
+     *
+     * @param threads the number of ranges parsed at the same time, 1 to parse the file in one go
+     * @return this CSVFileReader instance
+     */
+    public CSVFileReader withParallelism(int threads) {
+        if (threads < 1) {
+            throw new IllegalArgumentException("At least one thread is needed to read the file.");
+        }
+        this.parallelism = threads;
+        return this;
+    }
+
+    /**
+     * Records the stages of the reads in the metrics of a run: the read, the date format detection
+     * and, in the read() mode, the mapping of the rows
+     *
+     * @return this CSVFileReader instance
+     */
+    public CSVFileReader withMetrics(RunMetrics metrics) {
+        this.metrics = isNull(metrics) ? RunMetrics.disabled() : metrics;
+        return this;
+    }
+
+    /**
+     * Lets readTable() load the file from a binary snapshot in the cache directory, if the file
+     * has not changed since the snapshot has been saved
+     *
+     * @param cacheDirectory the directory of the snapshots, created if it does not exist
+     * @return this CSVFileReader instance
+     */
+    public CSVFileReader withSnapshotCache(File cacheDirectory) {
+        this.snapshotCache = SnapshotCache.of(cacheDirectory);
+        return this;
+    }
+
+    public String getDateFormat() {
+        return this.dateFormat;
+    }
+
     @TestOnly
     public File getCsvFile() {
         return this.csvFile;
@@ -0,0 +1,200 @@
+package com.rosenhristov.service;
+
+import com.rosenhristov.model.AssignmentTable;
+import com.rosenhristov.utils.Utils;
+
+import java.io.File;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.PathMatcher;
+import java.nio.file.Paths;
+import java.util.*;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import static com.rosenhristov.utils.Constants.*;
+import static java.util.Objects.isNull;
+
+/**
+ * Reads a set of CSV files, e.g. the exports of all departments, into one AssignmentTable.
+ * The set is given as a single file, a directory (all '.csv' files in it) or a glob pattern like
+ * 'exports/*.csv' or 'exports/**.csv'. Every file is read by its own CSVFileReader on a thread of a fixed
+ * pool, so the date format is identified per file and the reading takes about as long as reading the
+ * largest file. A set of a single file is parsed in ranges of lines on the threads instead.
+ * The tables of the files are appended in the order of the file paths, so the result
+ * does not depend on which file is read first.
+ */
+public class CSVFileSetReader {
+
+    private static final String GLOB_CHARACTERS = "*?[{";
+
+    private final String location;
+    private final List<File> csvFiles;
+    private final Map<File, String> dateFormats = new LinkedHashMap<>();
+    private File cacheDirectory;
+    private int threads = Runtime.getRuntime().availableProcessors();
+    private RunMetrics metrics = RunMetrics.disabled();
+
+    private CSVFileSetReader(String location, List<File> csvFiles) {
+        this.location = location;
+        this.csvFiles = csvFiles;
+    }
+
+    /**
+     * @param location a path to a '.csv' file or a directory, or a glob pattern of '.csv' file paths
+     * @throws FileNotFoundException if no '.csv' file is found at the location
+     */
+    public static CSVFileSetReader of(String location) throws FileNotFoundException {
+        if (isNull(location) || location.isBlank()) {
+            throw new IllegalArgumentException(String.format(NOT_A_CSV_FILE_PATH_MESSAGE, location));
+        }
+        List<File> csvFiles;
+        File file = new File(location);
+        if (file.isDirectory()) {
+            csvFiles = listCSVFiles(file.toPath(), 1, path -> true);
+        } else if (isGlobPattern(location)) {
+            PathMatcher matcher = FileSystems.getDefault().getPathMatcher("glob:" + location);
+            csvFiles = listCSVFiles(getGlobBaseDirectory(location), Integer.MAX_VALUE, matcher);
+        } else {
+            CSVFileReader.of(location); // fails if the path is not a path to an existing '.csv' file
+            csvFiles = List.of(file);
+        }
+        if (csvFiles.isEmpty()) {
+            throw new FileNotFoundException(String.format(NO_CSV_FILES_FOUND_MESSAGE, location));
+        }
+        return new CSVFileSetReader(location, csvFiles);
+    }
+
+    private static boolean isGlobPattern(String location) {
+        return location.chars().anyMatch(ch -> GLOB_CHARACTERS.indexOf(ch) >= 0);
+    }
+
+    /**
+     * @return the deepest directory of the pattern without any glob character in it
+     */
+    private static Path getGlobBaseDirectory(String pattern) {
+        int firstGlobCharacter = 0;
+        while (GLOB_CHARACTERS.indexOf(pattern.charAt(firstGlobCharacter)) < 0) {
+            firstGlobCharacter++;
+        }
+        int separator = Math.max(pattern.lastIndexOf('/', firstGlobCharacter),
+                pattern.lastIndexOf(File.separatorChar, firstGlobCharacter));
+        return separator < 0 ? Paths.get("") : Paths.get(pattern.substring(0, separator + 1));
+    }
+
+    private static List<File> listCSVFiles(Path directory, int depth, PathMatcher matcher) {
+        if (!Files.isDirectory(directory)) {
+            return List.of();
+        }
+        try (Stream<Path> paths = Files.walk(directory, depth)) {
+            return paths.filter(matcher::matches)
+                    .map(Path::toFile)
+                    .filter(Utils::isCSVFile)
+                    .sorted()
+                    .collect(Collectors.toList());
+        } catch (IOException ioe) {
+            throw new RuntimeException(FILE_READING_IO_EXCEPTION_MESSAGE + directory, ioe);
+        }
+    }
+
+    /**
+     * Lets every file of the set be loaded from its snapshot, see CSVFileReader.withSnapshotCache
+     */
+    public CSVFileSetReader withSnapshotCache(File cacheDirectory) {
+        this.cacheDirectory = cacheDirectory;
+        return this;
+    }
+
+    /**
+     * Records the reads of the files in the metrics of a run, see CSVFileReader.withMetrics
+     */
+    public CSVFileSetReader withMetrics(RunMetrics metrics) {
+        this.metrics = isNull(metrics) ? RunMetrics.disabled() : metrics;
+        return this;
+    }
+
+    /**
+     * @param threads the most files read at the same time, the number of processors by default
+     */
+    public CSVFileSetReader withThreads(int threads) {
+        if (threads < 1) {
+            throw new IllegalArgumentException("At least one thread is needed to read the files.");
+        }
+        this.threads = threads;
+        return this;
+    }
+
+    /**
+     * Reads the files concurrently, one file per task, and appends their tables in the order of the files
+     *
+     * @return the table of the rows of all files
+     */
+    public AssignmentTable readTable() {
+        if (csvFiles.size() == 1) {
+            CSVFileReader reader = createReader(csvFiles.get(0)).withParallelism(threads);
+            AssignmentTable table = reader.readTable();
+            dateFormats.put(csvFiles.get(0), reader.getDateFormat());
+            return table;
+        }
+        if (threads == 1) {
+            return readTablesInOrder();
+        }
+        ExecutorService executor = Executors.newFixedThreadPool(Math.min(csvFiles.size(), threads));
+        try {
+            List<Future<AssignmentTable>> tables = new ArrayList<>(csvFiles.size());
+            List<CSVFileReader> readers = new ArrayList<>(csvFiles.size());
+            for (File csvFile : csvFiles) {
+                CSVFileReader reader = createReader(csvFile);
+                readers.add(reader);
+                tables.add(executor.submit(reader::readTable));
+            }
+            List<AssignmentTable> readTables = new ArrayList<>(csvFiles.size());
+            for (int i = 0; i < csvFiles.size(); i++) {
+                readTables.add(CSVFileReader.await(tables.get(i), csvFiles.get(i)));
+                dateFormats.put(csvFiles.get(i), readers.get(i).getDateFormat());
+            }
+            return AssignmentTable.concat(readTables);
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    private AssignmentTable readTablesInOrder() {
+        AssignmentTable merged = AssignmentTable.create();
+        for (File csvFile : csvFiles) {
+            CSVFileReader reader = createReader(csvFile);
+            merged.addAll(reader.readTable());
+            dateFormats.put(csvFile, reader.getDateFormat());
+        }
+        return merged;
+    }
+
+    private CSVFileReader createReader(File csvFile) {
+        CSVFileReader reader = CSVFileReader.of(csvFile).withMetrics(metrics);
+        return isNull(cacheDirectory) ? reader : reader.withSnapshotCache(cacheDirectory);
+    }
+
+    public String getLocation() {
+        return location;
+    }
+
+    /**
+     * @return the files of the set in the order their rows are appended
+     */
+    public List<File> getCsvFiles() {
+        return csvFiles;
+    }
+
+    /**
+     * @return the date format identified in every file read, null for the files without any date
+     */
+    public Map<File, String> getDateFormats() {
+        return dateFormats;
+    }
+}
@@ -0,0 +1,11 @@
+package com.rosenhristov.service;
+
+/**
+ * Receives every project collaboration found by the CollaborationEngine. The employee IDs are always
+ * passed in ascending order, so one and the same pair of coworkers is reported under one key.
+ */
+@FunctionalInterface
+public interface CollaborationConsumer {
+
+    void accept(int employee1, int employee2, int projectID, int daysWorked);
+}
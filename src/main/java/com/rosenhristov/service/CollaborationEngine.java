@@ -0,0 +1,418 @@
+package com.rosenhristov.service;
+
+import com.rosenhristov.model.AssignmentTable;
+import com.rosenhristov.model.PairTotals;
+import com.rosenhristov.model.ProjectCollaboration;
+import com.rosenhristov.model.ProjectTimeline;
+import com.rosenhristov.model.TopPairs;
+
+import java.util.*;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
+import static java.util.Objects.isNull;
+
+/**
+ * Finds the project collaborations by sweeping over the assignments of every project instead of comparing
+ * every employee with every other one. The assignments are grouped by project and sorted by start date,
+ * so the sweep line only visits the pairs of employees whose periods in the project really overlap.
+ */
+public class CollaborationEngine {
+
+    /**
+     * A fork-join task stops splitting once its projects hold no more than this number of assignments
+     */
+    private static final int ASSIGNMENTS_PER_TASK = 4096;
+
+    private final Map<Integer, ProjectTimeline> timelines;
+
+    private CollaborationEngine(Map<Integer, ProjectTimeline> timelines) {
+        this.timelines = timelines;
+    }
+
+    public static CollaborationEngine of(AssignmentTable assignments) {
+        if (isNull(assignments) || assignments.isEmpty()) {
+            throw new IllegalArgumentException("No assignments provided to analyse.");
+        }
+        return new CollaborationEngine(groupAssignmentsByProject(assignments));
+    }
+
+    /**
+     * Builds one timeline per project out of the rows of the table. Like an Employee instance does,
+     * the timeline keeps only the last period read for an employee in the project.
+     *
+     * @return map with the projects' IDs as keys and the timelines sorted by start date as values
+     */
+    private static Map<Integer, ProjectTimeline> groupAssignmentsByProject(AssignmentTable assignments) {
+        Grouping grouping = Grouping.create();
+        for (int row = 0; row < assignments.size(); row++) {
+            grouping.accept(
+                    assignments.getEmployeeID(row),
+                    assignments.getProjectID(row),
+                    assignments.getStartDay(row),
+                    assignments.getEndDay(row));
+        }
+        return grouping.finish();
+    }
+
+    /**
+     * Groups the assignments into project timelines as they are read, so the grouping can run while the
+     * rest of the file is still being read and the engine is ready as soon as the last row arrives
+     */
+    public static class Grouping implements AssignmentConsumer {
+
+        private final Map<Integer, ProjectTimeline> timelines = new HashMap<>();
+        private ProjectTimeline timeline;
+
+        private Grouping() {
+        }
+
+        public static Grouping create() {
+            return new Grouping();
+        }
+
+        @Override
+        public void accept(int employeeID, int projectID, int startDay, int endDay) {
+            if (isNull(timeline) || timeline.getProjectID() != projectID) {
+                timeline = timelines.computeIfAbsent(projectID, ProjectTimeline::of);
+            }
+            timeline.addAssignment(employeeID, startDay, endDay);
+        }
+
+        /**
+         * @return the engine over the assignments grouped so far, the grouping should not be used afterwards
+         */
+        public CollaborationEngine build() {
+            if (timelines.isEmpty()) {
+                throw new IllegalArgumentException("No assignments provided to analyse.");
+            }
+            return new CollaborationEngine(finish());
+        }
+
+        private Map<Integer, ProjectTimeline> finish() {
+            timelines.values().forEach(projectTimeline -> projectTimeline
+                    .keepLastAssignmentPerEmployee()
+                    .sortByStartDate());
+            return timelines;
+        }
+    }
+
+    /**
+     * Applies new and removed assignments to the timelines of the projects they belong to. Only the touched
+     * projects are swept: once before the change, taking their collaborations back, and once after it.
+     * A removed assignment is dropped if it is the period the employee has in the project, an added one
+     * replaces the period the employee had in the project, the way a row read later in a file does.
+     *
+     * @param added the new assignments
+     * @param removed the assignments that do not exist any more, removed before the new ones are added
+     * @return the change of the total days per pair of employees, the pairs that have not changed are absent
+     */
+    public PairTotals applyDelta(AssignmentTable added, AssignmentTable removed) {
+        Set<Integer> touchedProjects = new HashSet<>();
+        collectProjects(removed, touchedProjects);
+        collectProjects(added, touchedProjects);
+
+        PairTotals delta = PairTotals.create();
+        touchedProjects.forEach(projectID -> {
+            ProjectTimeline timeline = timelines.get(projectID);
+            if (!isNull(timeline)) {
+                sweep(timeline, (employee1, employee2, project, daysWorked) ->
+                        delta.add(employee1, employee2, -daysWorked));
+            }
+        });
+
+        for (int row = 0; row < removed.size(); row++) {
+            ProjectTimeline timeline = timelines.get(removed.getProjectID(row));
+            if (!isNull(timeline)) {
+                timeline.removeAssignment(removed.getEmployeeID(row), removed.getStartDay(row), removed.getEndDay(row));
+            }
+        }
+        for (int row = 0; row < added.size(); row++) {
+            timelines.computeIfAbsent(added.getProjectID(row), ProjectTimeline::of)
+                    .putAssignment(added.getEmployeeID(row), added.getStartDay(row), added.getEndDay(row));
+        }
+
+        touchedProjects.forEach(projectID -> {
+            ProjectTimeline timeline = timelines.get(projectID);
+            if (isNull(timeline)) {
+                return;
+            }
+            if (timeline.isEmpty()) {
+                timelines.remove(projectID);
+                return;
+            }
+            sweep(timeline, (employee1, employee2, project, daysWorked) ->
+                    delta.add(employee1, employee2, daysWorked));
+        });
+        return delta;
+    }
+
+    private static void collectProjects(AssignmentTable assignments, Set<Integer> projects) {
+        for (int row = 0; row < assignments.size(); row++) {
+            projects.add(assignments.getProjectID(row));
+        }
+    }
+
+    /**
+     * Extracts all the pairs of employees that have worked together in one or more common projects
+     *
+     * @return  List of ProjectCollaboration instances that contain information about the coworkers' IDs,
+     *          the project number and the number of days they have worked together.
+     */
+    public List<ProjectCollaboration> extractProjectCollaborations() {
+        List<ProjectCollaboration> projectCollaborations = new ArrayList<>();
+        extractProjectCollaborations((employee1, employee2, projectID, daysWorked) ->
+                projectCollaborations.add(new ProjectCollaboration(employee1, employee2, projectID, daysWorked)));
+        return projectCollaborations;
+    }
+
+    public void extractProjectCollaborations(CollaborationConsumer consumer) {
+        timelines.values().forEach(timeline -> sweep(timeline, consumer));
+    }
+
+    /**
+     * Sums the days every pair of coworkers has worked together. The days are added to the totals
+     * as soon as the sweep finds a collaboration, so no collaboration is ever stored on its own.
+     *
+     * @return the total number of cooperation days per pair of employees
+     */
+    public PairTotals calculatePairTotals() {
+        PairTotals totals = PairTotals.create();
+        extractProjectCollaborations((employee1, employee2, projectID, daysWorked) ->
+                totals.add(employee1, employee2, daysWorked));
+        return totals;
+    }
+
+    /**
+     * Sums the days every pair of coworkers has worked together, spreading the projects across the
+     * given pool. Every task sums the collaborations in its own projects in totals of its own and the
+     * partial totals are merged when the tasks join, so the workers never share a collection.
+     *
+     * @param forkJoinPool the pool the projects are processed in
+     * @return the total number of cooperation days per pair of employees
+     */
+    public PairTotals calculatePairTotals(ForkJoinPool forkJoinPool) {
+        List<ProjectTimeline> projects = List.copyOf(timelines.values());
+        return forkJoinPool.invoke(new PairTotalsTask(projects, 0, projects.size()));
+    }
+
+    /**
+     * Finds the K longest collaborations in every project. Every pair of coworkers is reported by the sweep
+     * once per project, so the collaborations are offered to the bounded heap of the project as they are found
+     * and never stored otherwise.
+     *
+     * @param k the number of collaborations to be kept per project
+     * @return map with the projects' IDs as keys and their longest collaborations as values
+     */
+    public Map<Integer, TopPairs> findTopPairsPerProject(int k) {
+        Map<Integer, TopPairs> topPairsPerProject = new HashMap<>();
+        timelines.forEach((projectID, timeline) -> {
+            TopPairs topPairs = TopPairs.of(k);
+            sweep(timeline, (employee1, employee2, project, daysWorked) ->
+                    topPairs.offer(employee1, employee2, daysWorked));
+            if (!topPairs.isEmpty()) {
+                topPairsPerProject.put(projectID, topPairs);
+            }
+        });
+        return topPairsPerProject;
+    }
+
+    /**
+     * Extracts the project collaborations spreading the projects across the given pool. Every task collects
+     * the collaborations of its own projects and the partial lists are concatenated when the tasks join.
+     *
+     * @param forkJoinPool the pool the projects are processed in
+     * @return  List of ProjectCollaboration instances that contain information about the coworkers' IDs,
+     *          the project number and the number of days they have worked together.
+     */
+    public List<ProjectCollaboration> extractProjectCollaborations(ForkJoinPool forkJoinPool) {
+        List<ProjectTimeline> projects = List.copyOf(timelines.values());
+        return forkJoinPool.invoke(new CollaborationsTask(projects, 0, projects.size()));
+    }
+
+    /**
+     * Walks along the assignments of the project in the order of their start dates keeping the assignments
+     * that are still active. An assignment stops being active as soon as an assignment starting on or after
+     * its end date is reached, because no later assignment can overlap it any more. Every assignment that is
+     * still active when a new one starts has worked together with it, unless the new one is a period of no days
+     * starting on the day the active one has started, the way two periods overlap in the pairwise comparison.
+     * The sweep of every project is a ProjectSweepEvent of a flight recording, with the overlaps visited
+     * and the peak of the active assignments, which show the projects whose employees all overlap.
+     *
+     * @param timeline the assignments in one project sorted by start date
+     * @param consumer receives every collaboration found in the project
+     */
+    void sweep(ProjectTimeline timeline, CollaborationConsumer consumer) {
+        ProjectSweepEvent event = new ProjectSweepEvent();
+        event.begin();
+        int[] active = new int[Math.min(timeline.size(), 16)];
+        int activeCount = 0;
+        int peakActiveCount = 0;
+        long overlaps = 0;
+
+        for (int current = 0; current < timeline.size(); current++) {
+            int currentStart = timeline.getStartDay(current);
+            int currentEnd = timeline.getEndDay(current);
+
+            int kept = 0;
+            for (int i = 0; i < activeCount; i++) {
+                int colleague = active[i];
+                if (timeline.getEndDay(colleague) <= currentStart) {
+                    continue; // the colleague has left the project before the current employee joined it
+                }
+                active[kept++] = colleague;
+                // a period of no days overlaps only the colleagues who have joined before it
+                if (timeline.getStartDay(colleague) < currentEnd) {
+                    emit(timeline, colleague, current, consumer);
+                    overlaps++;
+                }
+            }
+            activeCount = kept;
+
+            if (activeCount == active.length) {
+                active = Arrays.copyOf(active, active.length << 1);
+            }
+            active[activeCount++] = current;
+            peakActiveCount = Math.max(peakActiveCount, activeCount);
+        }
+
+        event.end();
+        if (event.shouldCommit()) {
+            event.projectID = timeline.getProjectID();
+            event.assignments = timeline.size();
+            event.overlaps = overlaps;
+            event.peakActiveAssignments = peakActiveCount;
+            event.commit();
+        }
+    }
+
+    private void emit(ProjectTimeline timeline, int colleague, int current, CollaborationConsumer consumer) {
+        int employeeID = timeline.getEmployeeID(current);
+        int colleagueID = timeline.getEmployeeID(colleague);
+        if (employeeID == colleagueID) {
+            return;
+        }
+        int collaborationStart = Math.max(timeline.getStartDay(colleague), timeline.getStartDay(current));
+        int collaborationEnd = Math.min(timeline.getEndDay(colleague), timeline.getEndDay(current));
+
+        consumer.accept(
+                Math.min(employeeID, colleagueID),
+                Math.max(employeeID, colleagueID),
+                timeline.getProjectID(),
+                collaborationDays(collaborationStart, collaborationEnd));
+    }
+
+    private int collaborationDays(int collaborationStart, int collaborationEnd) {
+        return collaborationEnd - collaborationStart;
+    }
+
+    /**
+     * Base of the fork-join tasks: splits the range of projects in halves until the projects in the range
+     * are few enough to be swept by one worker, then merges the partial results of both halves.
+     */
+    private abstract class ProjectsTask<T> extends RecursiveTask<T> {
+
+        private static final long serialVersionUID = 1L;
+
+        protected final List<ProjectTimeline> projects;
+        protected final int from;
+        protected final int to;
+
+        ProjectsTask(List<ProjectTimeline> projects, int from, int to) {
+            this.projects = projects;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected T compute() {
+            if (to - from <= 1 || countAssignments() <= ASSIGNMENTS_PER_TASK) {
+                return sweepAll();
+            }
+            int middle = (from + to) >>> 1;
+            ProjectsTask<T> left = split(from, middle);
+            ProjectsTask<T> right = split(middle, to);
+            left.fork();
+            T rightResult = right.compute();
+            return merge(left.join(), rightResult);
+        }
+
+        private int countAssignments() {
+            int assignments = 0;
+            for (int i = from; i < to; i++) {
+                assignments += projects.get(i).size();
+            }
+            return assignments;
+        }
+
+        protected abstract T sweepAll();
+
+        protected abstract ProjectsTask<T> split(int from, int to);
+
+        protected abstract T merge(T left, T right);
+    }
+
+    private class PairTotalsTask extends ProjectsTask<PairTotals> {
+
+        private static final long serialVersionUID = 1L;
+
+        PairTotalsTask(List<ProjectTimeline> projects, int from, int to) {
+            super(projects, from, to);
+        }
+
+        @Override
+        protected PairTotals sweepAll() {
+            PairTotals totals = PairTotals.create();
+            for (int i = from; i < to; i++) {
+                sweep(projects.get(i), (employee1, employee2, projectID, daysWorked) ->
+                        totals.add(employee1, employee2, daysWorked));
+            }
+            return totals;
+        }
+
+        @Override
+        protected ProjectsTask<PairTotals> split(int from, int to) {
+            return new PairTotalsTask(projects, from, to);
+        }
+
+        @Override
+        protected PairTotals merge(PairTotals left, PairTotals right) {
+            return left.size() >= right.size() ? left.addAll(right) : right.addAll(left);
+        }
+    }
+
+    private class CollaborationsTask extends ProjectsTask<List<ProjectCollaboration>> {
+
+        private static final long serialVersionUID = 1L;
+
+        CollaborationsTask(List<ProjectTimeline> projects, int from, int to) {
+            super(projects, from, to);
+        }
+
+        @Override
+        protected List<ProjectCollaboration> sweepAll() {
+            List<ProjectCollaboration> collaborations = new ArrayList<>();
+            for (int i = from; i < to; i++) {
+                sweep(projects.get(i), (employee1, employee2, projectID, daysWorked) ->
+                        collaborations.add(new ProjectCollaboration(employee1, employee2, projectID, daysWorked)));
+            }
+            return collaborations;
+        }
+
+        @Override
+        protected ProjectsTask<List<ProjectCollaboration>> split(int from, int to) {
+            return new CollaborationsTask(projects, from, to);
+        }
+
+        @Override
+        protected List<ProjectCollaboration> merge(List<ProjectCollaboration> left,
+                                                   List<ProjectCollaboration> right) {
+            left.addAll(right);
+            return left;
+        }
+    }
+
+    public Map<Integer, ProjectTimeline> getTimelines() {
+        return timelines;
+    }
+}
@@ -0,0 +1,160 @@
+package com.rosenhristov.service;
+
+import com.rosenhristov.model.ProjectCollaboration;
+
+import javax.swing.table.AbstractTableModel;
+import java.util.Arrays;
+import java.util.List;
+import java.util.function.Predicate;
+
+import static java.util.Objects.isNull;
+
+/**
+ * Table model reading the cells straight from the list of collaborations when the table paints them, so
+ * opening the table does not copy the result and takes the same time whatever its size. Sorting and filtering
+ * do not move the collaborations either, they only rearrange an index permutation of the list:
+ * - the order holds the indexes of all collaborations sorted by the sort column,
+ * - the view holds the indexes in that order of the collaborations passing the filter, one per row.
+ */
+public class CollaborationTableModel extends AbstractTableModel {
+
+    private static final long serialVersionUID = 1L;
+
+    public static final int EMPLOYEE_1 = 0;
+    public static final int EMPLOYEE_2 = 1;
+    public static final int PROJECT_ID = 2;
+    public static final int DAYS_WORKED = 3;
+
+    private static final String[] COLUMN_NAMES = {"Employee ID #1", "Employee ID #2", "Project ID", "Days worked"};
+
+    private final List<ProjectCollaboration> collaborations;
+    private final int[] order;
+    private int[] view;
+    private int rowCount;
+    private Predicate<ProjectCollaboration> filter;
+    private int sortColumn = -1;
+    private boolean ascending = true;
+
+    private CollaborationTableModel(List<ProjectCollaboration> collaborations) {
+        this.collaborations = collaborations;
+        this.order = new int[collaborations.size()];
+        Arrays.setAll(order, index -> index);
+        this.view = order;
+        this.rowCount = order.length;
+    }
+
+    /**
+     * @param collaborations the collaborations to display, with a fast random access, e.g. an ArrayList
+     */
+    public static CollaborationTableModel of(List<ProjectCollaboration> collaborations) {
+        return new CollaborationTableModel(collaborations);
+    }
+
+    @Override
+    public int getRowCount() {
+        return rowCount;
+    }
+
+    @Override
+    public int getColumnCount() {
+        return COLUMN_NAMES.length;
+    }
+
+    @Override
+    public String getColumnName(int column) {
+        return COLUMN_NAMES[column];
+    }
+
+    @Override
+    public Class<?> getColumnClass(int column) {
+        return Integer.class;
+    }
+
+    @Override
+    public Object getValueAt(int row, int column) {
+        return getValue(getCollaboration(row), column);
+    }
+
+    /**
+     * @return the collaboration displayed in the row of the table
+     */
+    public ProjectCollaboration getCollaboration(int row) {
+        return collaborations.get(view[row]);
+    }
+
+    /**
+     * Sorts the rows by the values of a column, the rows with equal values keep their order in the list
+     */
+    public void sortBy(int column, boolean ascending) {
+        if (column < 0 || column >= COLUMN_NAMES.length) {
+            throw new IllegalArgumentException("No column with index " + column);
+        }
+        // the value in the high half and the index in the low half, so a sort of primitives sorts the indexes
+        long[] keys = new long[order.length];
+        for (int index = 0; index < keys.length; index++) {
+            int value = getValue(collaborations.get(index), column);
+            keys[index] = (long) (ascending ? value : ~value) << 32 | index;
+        }
+        Arrays.sort(keys);
+        for (int position = 0; position < keys.length; position++) {
+            order[position] = (int) keys[position];
+        }
+        this.sortColumn = column;
+        this.ascending = ascending;
+        applyFilter();
+    }
+
+    /**
+     * Sorts the rows by the column in ascending order, or in descending order if they are sorted
+     * by the column in ascending order already, as a click on the header of the column does
+     */
+    public void toggleSortBy(int column) {
+        sortBy(column, column != sortColumn || !ascending);
+    }
+
+    /**
+     * Shows only the collaborations accepted by the filter, in the order they are sorted
+     *
+     * @param filter the condition of the collaborations to show, null to show all of them
+     */
+    public void filter(Predicate<ProjectCollaboration> filter) {
+        this.filter = filter;
+        applyFilter();
+    }
+
+    public int getSortColumn() {
+        return sortColumn;
+    }
+
+    public boolean isAscending() {
+        return ascending;
+    }
+
+    private void applyFilter() {
+        if (isNull(filter)) {
+            view = order;
+            rowCount = order.length;
+        } else {
+            if (view == order) {
+                view = new int[order.length];
+            }
+            rowCount = 0;
+            for (int index : order) {
+                if (filter.test(collaborations.get(index))) {
+                    view[rowCount++] = index;
+                }
+            }
+        }
+        fireTableDataChanged();
+    }
+
+    private static int getValue(ProjectCollaboration collaboration, int column) {
+        switch (column) {
+            case EMPLOYEE_1: return collaboration.getEmployee1();
+            case EMPLOYEE_2: return collaboration.getEmployee2();
+            case PROJECT_ID: return collaboration.getProjectID();
+            case DAYS_WORKED: return collaboration.getDaysWorked();
+            default: throw new IllegalArgumentException("No column with index " + column);
+        }
+    }
+}
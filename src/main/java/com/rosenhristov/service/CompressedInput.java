@@ -0,0 +1,256 @@
+package com.rosenhristov.service;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.RandomAccessFile;
+import java.io.SequenceInputStream;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.stream.Collectors;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+
+import static com.rosenhristov.utils.Constants.FILE_READING_IO_EXCEPTION_MESSAGE;
+import static com.rosenhristov.utils.Constants.NO_CSV_FILES_FOUND_MESSAGE;
+import static java.util.Objects.isNull;
+
+/**
+ * Stream of the decompressed bytes of a gzip file, e.g. 'projects.csv.gz', or of a zip bundle, whose '.csv'
+ * entries are read one after another in the order of their names. The compression is detected by the magic
+ * bytes at the start of the file, so the name of the file does not matter, and nothing is written to disk.
+ *
+ * The file is inflated on a thread of its own, which fills large blocks and hands them over through a bounded
+ * queue, so the next blocks are inflated while the reader parses the ones inflated before. The inflating
+ * thread stops when the stream is closed.
+ */
+public class CompressedInput extends InputStream {
+
+    private static final int BLOCK_SIZE = 1 << 20;
+    private static final int QUEUE_CAPACITY = 4;
+    private static final int GZIP_MAGIC = 0x1f8b;
+    private static final int ZIP_MAGIC = 0x504b0304;
+
+    /**
+     * Marks the end of the decompressed bytes in the queue of the blocks inflated
+     */
+    private static final Block END_OF_BLOCKS = new Block(0);
+
+    private final File file;
+    private final BlockingQueue<Block> freeBlocks = new ArrayBlockingQueue<>(QUEUE_CAPACITY + 2);
+    private final BlockingQueue<Block> inflatedBlocks = new ArrayBlockingQueue<>(QUEUE_CAPACITY + 1);
+    private final Thread inflater;
+    private Block current;
+    private int position;
+    private Throwable failure;
+
+    private CompressedInput(File file) {
+        this.file = file;
+        for (int i = 0; i < QUEUE_CAPACITY + 2; i++) {
+            freeBlocks.add(new Block(BLOCK_SIZE));
+        }
+        inflater = new Thread(this::inflate, "inflate-" + file.getName());
+        inflater.setDaemon(true);
+    }
+
+    /**
+     * @return the decompressed bytes of the file, inflated on a thread of its own
+     */
+    public static CompressedInput of(File file) {
+        CompressedInput input = new CompressedInput(file);
+        input.inflater.start();
+        return input;
+    }
+
+    /**
+     * @return true if the file starts with the magic bytes of gzip or of a zip archive
+     */
+    public static boolean isCompressed(File file) {
+        try (RandomAccessFile input = new RandomAccessFile(file, "r")) {
+            if (input.length() < 4) {
+                return false;
+            }
+            int magic = input.readInt();
+            return magic >>> 16 == GZIP_MAGIC || magic == ZIP_MAGIC;
+        } catch (IOException ioe) {
+            throw new RuntimeException(FILE_READING_IO_EXCEPTION_MESSAGE + file.getName(), ioe);
+        }
+    }
+
+    /**
+     * Opens the decompressing stream of the file on the calling thread, e.g. for a stage that is a thread
+     * of its own already. The entries of a zip bundle that are not '.csv' files are skipped and a line break
+     * is put between the entries, so the last line of an entry is not joined to the title row of the next one.
+     */
+    public static InputStream openDecompressed(File file) throws IOException {
+        try (RandomAccessFile input = new RandomAccessFile(file, "r")) {
+            if (input.readInt() != ZIP_MAGIC) {
+                return new GZIPInputStream(new FileInputStream(file), 1 << 16);
+            }
+        }
+        ZipFile zipFile = new ZipFile(file);
+        List<ZipEntry> entries = zipFile.stream()
+                .filter(entry -> !entry.isDirectory() && entry.getName().endsWith(".csv"))
+                .sorted(Comparator.comparing(ZipEntry::getName))
+                .collect(Collectors.toList());
+        if (entries.isEmpty()) {
+            zipFile.close();
+            throw new IOException(String.format(NO_CSV_FILES_FOUND_MESSAGE, file.getName()));
+        }
+        List<InputStream> streams = new ArrayList<>(2 * entries.size());
+        for (ZipEntry entry : entries) {
+            streams.add(zipFile.getInputStream(entry));
+            streams.add(new LineBreak());
+        }
+        return new SequenceInputStream(Collections.enumeration(streams)) {
+            @Override
+            public void close() throws IOException {
+                try {
+                    super.close();
+                } finally {
+                    zipFile.close();
+                }
+            }
+        };
+    }
+
+    /**
+     * Inflating thread: fills the free blocks from the decompressing stream until its end or until the
+     * stream is closed. Whatever ends the inflating, a last block is handed over unless the stream has been
+     * closed, the end of the bytes or a block with the exception or error to be thrown by the reader,
+     * so the reader never waits for a block that will not come.
+     */
+    private void inflate() {
+        Block last = END_OF_BLOCKS;
+        try (InputStream input = openDecompressed(file)) {
+            int read = 0;
+            while (read >= 0) {
+                Block block = freeBlocks.take();
+                block.length = 0;
+                while (block.length < block.bytes.length
+                        && (read = input.read(block.bytes, block.length, block.bytes.length - block.length)) >= 0) {
+                    block.length += read;
+                }
+                inflatedBlocks.put(block);
+            }
+        } catch (InterruptedException ie) {
+            // the stream has been closed
+            return;
+        } catch (IOException | RuntimeException | Error e) {
+            last = new Block(0);
+            last.error = e;
+        }
+        try {
+            inflatedBlocks.put(last);
+        } catch (InterruptedException ie) {
+            // the stream has been closed
+        }
+    }
+
+    @Override
+    public int read() throws IOException {
+        return hasRemaining() ? current.bytes[position++] & 0xff : -1;
+    }
+
+    @Override
+    public int read(byte[] bytes, int offset, int length) throws IOException {
+        if (length == 0) {
+            return 0;
+        }
+        if (!hasRemaining()) {
+            return -1;
+        }
+        int read = Math.min(length, current.length - position);
+        System.arraycopy(current.bytes, position, bytes, offset, read);
+        position += read;
+        return read;
+    }
+
+    /**
+     * Gives the block read back to the inflating thread and takes the next one until a block with
+     * some bytes left or the end of the bytes is reached. Once the inflating has failed, every read
+     * throws its failure again.
+     */
+    private boolean hasRemaining() throws IOException {
+        if (!isNull(failure)) {
+            throwFailure();
+        }
+        while (isNull(current) || position == current.length) {
+            if (current == END_OF_BLOCKS) {
+                return false;
+            }
+            if (!isNull(current)) {
+                freeBlocks.add(current);
+            }
+            current = takeInflated();
+            position = 0;
+        }
+        return true;
+    }
+
+    private Block takeInflated() throws IOException {
+        try {
+            Block block = inflatedBlocks.take();
+            if (!isNull(block.error)) {
+                failure = block.error;
+                throwFailure();
+            }
+            return block;
+        } catch (InterruptedException ie) {
+            Thread.currentThread().interrupt();
+            throw new IOException(FILE_READING_IO_EXCEPTION_MESSAGE + file.getName(), ie);
+        }
+    }
+
+    private void throwFailure() throws IOException {
+        if (failure instanceof IOException) {
+            throw (IOException) failure;
+        }
+        if (failure instanceof RuntimeException) {
+            throw (RuntimeException) failure;
+        }
+        throw (Error) failure;
+    }
+
+    /**
+     * Stops the inflating thread, which closes the file
+     */
+    @Override
+    public void close() {
+        inflater.interrupt();
+    }
+
+    private static class Block {
+
+        private final byte[] bytes;
+        private int length;
+        private Throwable error;
+
+        private Block(int capacity) {
+            this.bytes = new byte[capacity];
+        }
+    }
+
+    /**
+     * The line break put after every entry of a zip bundle
+     */
+    private static class LineBreak extends InputStream {
+
+        private boolean read;
+
+        @Override
+        public int read() {
+            if (read) {
+                return -1;
+            }
+            read = true;
+            return '\n';
+        }
+    }
+}
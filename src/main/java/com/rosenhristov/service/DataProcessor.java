@@ -1,19 +1,25 @@
 package com.rosenhristov.service;
 
-import com.google.common.collect.ArrayListMultimap;
-import com.google.common.collect.Multimap;
 import com.rosenhristov.mapper.Mapper;
+import com.rosenhristov.model.AssignmentTable;
 import com.rosenhristov.model.CSVRowData;
+import com.rosenhristov.model.CollaborationIndex;
 import com.rosenhristov.model.Employee;
+import com.rosenhristov.model.PairTotals;
+import com.rosenhristov.model.ProjectIntervalIndex;
+import com.rosenhristov.model.ProjectTimeline;
 import com.rosenhristov.model.ProjectCollaboration;
+import com.rosenhristov.model.TopPairs;
 import org.apache.commons.collections.CollectionUtils;
 import org.apache.commons.collections.MapUtils;
 import org.apache.commons.lang3.tuple.ImmutablePair;
 import org.apache.commons.lang3.tuple.Pair;
 
+import java.io.File;
 import java.time.LocalDate;
-import java.time.Period;
+import java.time.temporal.ChronoUnit;
 import java.util.*;
+import java.util.concurrent.ForkJoinPool;
 import java.util.stream.Collectors;
 
 import static java.util.Objects.isNull;
@@ -22,15 +28,25 @@ import static java.util.stream.Collectors.*;
 public class DataProcessor {
 
     private List<CSVRowData> rowData;
+    private AssignmentTable assignments;
     private Map<Integer, Employee> employeesMap;
     private List<ProjectCollaboration> projectCollaborations;
-    private Map<Pair<Integer,Integer>, Integer> totalCollaborationPerPair;
+    private PairTotals pairTotals;
+    private CollaborationIndex collaborationIndex;
     private Map<Pair<Integer, Integer>, Integer> longestCollaborationsMap;
-    private Mapper mapper;
+    private CollaborationEngine collaborationEngine;
+    private Map<Integer, ProjectIntervalIndex> intervalIndexes = new HashMap<>();
+    private ForkJoinPool forkJoinPool;
+    private RunMetrics metrics = RunMetrics.disabled();
+    private File spillDirectory;
+    private long spillMemoryBudget;
 
     private DataProcessor(List<CSVRowData> rowData) {
         this.rowData = rowData;
-        this.mapper = Mapper.create();
+    }
+
+    private DataProcessor(AssignmentTable assignments) {
+        this.assignments = assignments;
     }
 
     public static DataProcessor of(List<CSVRowData> csvRowData) {
@@ -38,36 +54,188 @@ public class DataProcessor {
     }
 
     /**
-     * Extracts all the pairs of employees that have worked together in one or more common projects
+     * Creates a processor over the columnar table produced by CSVFileReader.readTable(),
+     * so no CSVRowData instances and no java.util.Date conversions are needed at all
+     */
+    public static DataProcessor of(AssignmentTable assignments) {
+        return new DataProcessor(assignments);
+    }
+
+    /**
+     * Creates a processor over a table whose assignments have already been grouped by project,
+     * e.g. by the aggregation stage of the ProcessingPipeline while the file was being read
+     */
+    public static DataProcessor of(AssignmentTable assignments, CollaborationEngine collaborationEngine) {
+        DataProcessor dataProcessor = new DataProcessor(assignments);
+        dataProcessor.collaborationEngine = collaborationEngine;
+        return dataProcessor;
+    }
+
+    /**
+     * Switches the processor to parallel execution: the projects are spread across the given pool and every
+     * worker sums the collaborations of its own projects, so the results are identical to the sequential ones.
+     *
+     * @param forkJoinPool the pool the projects are processed in, e.g. ForkJoinPool.commonPool()
+     * @return this DataProcessor instance
+     */
+    public DataProcessor inParallel(ForkJoinPool forkJoinPool) {
+        if (isNull(forkJoinPool)) {
+            throw new IllegalArgumentException("No fork-join pool provided to process the projects in.");
+        }
+        this.forkJoinPool = forkJoinPool;
+        return this;
+    }
+
+    /**
+     * Records the stages of the processing in the metrics of a run: the grouping of the rows by project
+     * and by employee, the extraction of the pairs and the aggregation of their totals
+     *
+     * @return this DataProcessor instance
+     */
+    public DataProcessor withMetrics(RunMetrics metrics) {
+        this.metrics = isNull(metrics) ? RunMetrics.disabled() : metrics;
+        return this;
+    }
+
+    /**
+     * Switches the longest and the top collaborations to external aggregation for data sets whose pairs
+     * of coworkers do not fit in the heap: the pair totals are spilled to hash partitions on disk under
+     * the memory budget and the partitions are aggregated one by one, see SpillingPairAggregator.
+     * Only the running longest or top pairs are kept, and the project collaborations of a pair are found
+     * by a sweep for the pair instead of an index of all collaborations.
+     *
+     * @param spillDirectory the directory of the temporary spill files
+     * @param memoryBudget the number of bytes the pair totals held in memory may take
+     * @return this DataProcessor instance
+     */
+    public DataProcessor withSpilling(File spillDirectory, long memoryBudget) {
+        if (isNull(spillDirectory) || memoryBudget < 1) {
+            throw new IllegalArgumentException("A spill directory and a positive memory budget are needed to spill the pair totals.");
+        }
+        this.spillDirectory = spillDirectory;
+        this.spillMemoryBudget = memoryBudget;
+        return this;
+    }
+
+    /**
+     * Extracts all the pairs of employees that have worked together in one or more common projects.
+     * The collaborations are found per project by the CollaborationEngine, so only the employees who
+     * really share a project are compared with each other.
      *
      * @return  List of ProjectCollaboration instances that contain information about the coworkers' IDs,
      *          the project number and the number of days they have worked together.
      */
     public List<ProjectCollaboration> extractProjectCollaborations() {
-        if (CollectionUtils.isEmpty(rowData)) {
-            throw new RuntimeException("No data provided as csv data rows.");
-        }
         if (isNull(projectCollaborations)) {
-            projectCollaborations = new LinkedList<>();
+            projectCollaborations = new ArrayList<>();
         }
-        Map<Integer, Employee> employees = groupProjectsByEmployee();
-        Set<Integer> checkedEmployees = new HashSet<>();
-        for(Employee employee : employees.values()) {
-            for(Employee colleague: employees.values()) {
-                if(employee.getEmployeeID() != colleague.getEmployeeID()
-                        && !checkedEmployees.contains(colleague.getEmployeeID())) {
-                    List<ProjectCollaboration> pairCollaborations = extractCollaborationsForEmployees(employee, colleague);
-                    projectCollaborations.addAll(pairCollaborations);
-                }
-            }
-            checkedEmployees.add(employee.getEmployeeID()); // to avoid double checking
+        CollaborationEngine engine = getCollaborationEngine();
+        try (RunMetrics.Stage stage = metrics.start(RunMetrics.PAIR_EXTRACTION)) {
+            List<ProjectCollaboration> extracted = isParallel()
+                    ? engine.extractProjectCollaborations(forkJoinPool)
+                    : engine.extractProjectCollaborations();
+            projectCollaborations.addAll(extracted);
+            stage.addPairs(extracted.size()).addProjects(engine.getTimelines().size());
         }
         return projectCollaborations;
     }
 
+    /**
+     * Applies the rows added to and removed from the data since it has been processed. Only the projects
+     * touched by the rows are swept again, the pair totals already calculated are adjusted by the change of
+     * the touched pairs and the longest collaboration is updated from the adjusted pairs, so nothing is
+     * recalculated from scratch. The collaborations and the employees are regrouped the next time they are
+     * requested, and so is the longest collaboration in spilling mode.
+     *
+     * @param added the new rows, an added row replaces the period its employee had in the project
+     * @param removed the rows that do not exist any more
+     * @return this DataProcessor instance
+     */
+    public DataProcessor applyDelta(List<CSVRowData> added, List<CSVRowData> removed) {
+        PairTotals delta = getCollaborationEngine().applyDelta(
+                Mapper.toAssignmentTable(isNull(added) ? List.of() : added),
+                Mapper.toAssignmentTable(isNull(removed) ? List.of() : removed));
+        projectCollaborations = null;
+        collaborationIndex = null;
+        employeesMap = null;
+        intervalIndexes.clear();
+        if (!isNull(pairTotals)) {
+            pairTotals.addAll(delta);
+        }
+        if (isSpilling()) {
+            // the longest collaboration is not found from the totals, it is aggregated again when requested
+            longestCollaborationsMap = null;
+        } else if (!isNull(pairTotals) && !isNull(longestCollaborationsMap)) {
+            updateLongestProjectCollaboration(delta);
+        }
+        return this;
+    }
 
     /**
-     * Iterates along rowData read by CSVFileReader to define the employees and the projects they have worked in
+     * Keeps the longest collaboration up to date with the pairs changed by a delta. The totals are scanned
+     * again only if one of the longest collaborations has become shorter.
+     */
+    private void updateLongestProjectCollaboration(PairTotals delta) {
+        int longestCollaborationTime = longestCollaborationsMap.isEmpty()
+                ? 0
+                : longestCollaborationsMap.values().iterator().next();
+        boolean longestShortened = longestCollaborationsMap.keySet().stream()
+                .anyMatch(pair -> delta.get(pair.getKey(), pair.getValue()) < 0);
+        if (longestShortened) {
+            longestCollaborationsMap = pairTotals.isEmpty() ? new HashMap<>() : getLongestProjectCollaboration();
+            return;
+        }
+        Map<Pair<Integer, Integer>, Integer> changedLongest = new HashMap<>();
+        delta.forEach((employee1, employee2, days) -> {
+            int total = pairTotals.get(employee1, employee2);
+            if (total > 0 && total >= longestCollaborationTime) {
+                changedLongest.put(ImmutablePair.of(employee1, employee2), total);
+            }
+        });
+        int newLongestTime = changedLongest.values().stream().mapToInt(total -> total).max().orElse(0);
+        if (newLongestTime > longestCollaborationTime) {
+            longestCollaborationsMap = new HashMap<>();
+        }
+        changedLongest.forEach((pair, total) -> {
+            if (total == newLongestTime) {
+                longestCollaborationsMap.put(pair, total);
+            }
+        });
+    }
+
+    private CollaborationEngine getCollaborationEngine() {
+        if (isNull(collaborationEngine)) {
+            AssignmentTable table = getAssignments();
+            try (RunMetrics.Stage stage = metrics.start(RunMetrics.GROUPING)) {
+                collaborationEngine = CollaborationEngine.of(table);
+                stage.addRows(table.size()).addProjects(collaborationEngine.getTimelines().size());
+            }
+        }
+        return collaborationEngine;
+    }
+
+    /**
+     * @return the columnar table of the rows, converted from rowData at the first call if the processor
+     *         has been created from a list of CSVRowData instances. The deltas applied later are not
+     *         added to it, they are applied to the project timelines of the CollaborationEngine.
+     */
+    public AssignmentTable getAssignments() {
+        if (isNull(assignments)) {
+            if (CollectionUtils.isEmpty(rowData)) {
+                throw new RuntimeException("No data provided as csv data rows.");
+            }
+            try (RunMetrics.Stage stage = metrics.start(RunMetrics.MAPPING)) {
+                assignments = Mapper.toAssignmentTable(rowData);
+                stage.addRows(assignments.size());
+            }
+        }
+        return assignments;
+    }
+
+
+    /**
+     * Iterates along the project timelines to define the employees and the projects they have worked in.
+     * The timelines keep the last period read for an employee in a project, and so does an Employee.
      *
      * @return map with the employees' IDs as keys and Employee instances as aa value
      */
@@ -75,26 +243,22 @@ public class DataProcessor {
         if(MapUtils.isEmpty(employeesMap)) {
             employeesMap = new HashMap<>();
         }
-        for (CSVRowData row : rowData) {
-            if (employeesMap.containsKey(row.getEmployeeID())) {
-                employeesMap.get(row.getEmployeeID())
-                        .addProject(row.getProjectID(),
-                                mapper.toLocalDate(row.getDateFrom()),
-                                mapper.toLocalDate(row.getDateTo()));
-            } else {
-                Employee employee = new Employee(row.getEmployeeID());
-                employee.addProject(
-                        row.getProjectID(),
-                        mapper.toLocalDate(row.getDateFrom()),
-                        mapper.toLocalDate(row.getDateTo())
-                );
-                employeesMap.put(row.getEmployeeID(), employee);
-            }
+        Map<Integer, ProjectTimeline> timelines = getCollaborationEngine().getTimelines();
+        try (RunMetrics.Stage stage = metrics.start(RunMetrics.GROUPING)) {
+            timelines.values().forEach(timeline -> {
+                for (int i = 0; i < timeline.size(); i++) {
+                    employeesMap.computeIfAbsent(timeline.getEmployeeID(i), Employee::new)
+                            .addProject(timeline.getProjectID(),
+                                    LocalDate.ofEpochDay(timeline.getStartDay(i)),
+                                    LocalDate.ofEpochDay(timeline.getEndDay(i)));
+                }
+                stage.addRows(timeline.size());
+            });
+            stage.addProjects(timelines.size());
         }
         return employeesMap;
     }
 
-
     /**
      * Extracts the projects that certain pair of coworkers have cooperated in
      *
@@ -119,7 +283,7 @@ public class DataProcessor {
                 LocalDate collaborationStartDate = getCollaborationStartDate(employeeStartDate, colleagueStartDate);
                 LocalDate collaborationEndDate = getCollaborationEndDate(employeeEndDate, colleagueEndDate);
 
-                int projectCollaborationDays = Period.between(collaborationStartDate, collaborationEndDate).getDays();
+                int projectCollaborationDays = (int) ChronoUnit.DAYS.between(collaborationStartDate, collaborationEndDate);
                 employeesCollaboration.add(
                         new ProjectCollaboration(
                                 employee.getEmployeeID(),
@@ -133,6 +297,67 @@ public class DataProcessor {
         return employeesCollaboration;
     }
 
+    /**
+     * Finds the coworkers who have worked with the employee in a common project during the window.
+     * Every project of the employee is looked up in its interval index, so only the assignments that
+     * really overlap the employee's period within the window are visited. The interval indexes are cached
+     * lazily in a HashMap, so the lookups of one DataProcessor must not run on several threads at once.
+     *
+     * @param employeeID the employee whose coworkers are searched for
+     * @param from the first day of the window
+     * @param to the day the window ends, not included
+     * @return  List of ProjectCollaboration instances with the employee as first employee and the number of
+     *          days the employees have worked together within the window
+     */
+    public List<ProjectCollaboration> findCollaborations(int employeeID, LocalDate from, LocalDate to) {
+        if (MapUtils.isEmpty(employeesMap)) {
+            groupProjectsByEmployee();
+        }
+        Employee employee = employeesMap.get(employeeID);
+        if (isNull(employee)) {
+            return List.of();
+        }
+        List<ProjectCollaboration> collaborations = new ArrayList<>();
+        employee.getProjects().forEach((projectID, period) -> {
+            int windowStart = (int) Math.max(period.getKey().toEpochDay(), from.toEpochDay());
+            int windowEnd = (int) Math.min(period.getValue().toEpochDay(), to.toEpochDay());
+            getIntervalIndex(projectID).findOverlapping(windowStart, windowEnd, (colleagueID, startDay, endDay) -> {
+                if (colleagueID != employeeID) {
+                    collaborations.add(new ProjectCollaboration(employeeID, colleagueID, projectID,
+                            Math.min(endDay, windowEnd) - Math.max(startDay, windowStart)));
+                }
+            });
+        });
+        return collaborations;
+    }
+
+    /**
+     * Finds the employees who have worked in the project during the window, not safe to run on several
+     * threads at once, see findCollaborations
+     *
+     * @param projectID the project the employees are searched in
+     * @param from the first day of the window
+     * @param to the day the window ends, not included
+     * @return the IDs of the employees in the order of the dates they have started working in the project
+     */
+    public List<Integer> findEmployeesInProject(int projectID, LocalDate from, LocalDate to) {
+        List<Integer> employeeIDs = new ArrayList<>();
+        getIntervalIndex(projectID).findOverlapping((int) from.toEpochDay(), (int) to.toEpochDay(),
+                (employeeID, startDay, endDay) -> employeeIDs.add(employeeID));
+        return employeeIDs;
+    }
+
+    /**
+     * @return the interval index of the project, built at the first lookup in the project
+     *         and rebuilt after a delta has been applied
+     */
+    private ProjectIntervalIndex getIntervalIndex(int projectID) {
+        return intervalIndexes.computeIfAbsent(projectID, project -> {
+            ProjectTimeline timeline = getCollaborationEngine().getTimelines().get(project);
+            return ProjectIntervalIndex.of(isNull(timeline) ? ProjectTimeline.of(project) : timeline);
+        });
+    }
+
     /**
      * This method defines if two employees worked together by checking if the start dates
      * of each employee is earlier than the end date of the other.
@@ -192,81 +417,250 @@ public class DataProcessor {
      *         the longest collaboration time among all pairs of coworkers
      */
     public Map<Pair<Integer, Integer>, Integer> getLongestProjectCollaboration() {
-        if (MapUtils.isEmpty(totalCollaborationPerPair)) {
-            calculateTotalCollaborationPerPair();
+        if (isSpilling()) {
+            return getLongestProjectCollaborationBySpilling();
         }
-        int longestCollaborationTime = totalCollaborationPerPair
-                .values()
-                .stream()
-                .mapToInt(v -> v)
-                .max()
-                .orElseThrow(NoSuchElementException::new);
+        PairTotals totals = getPairTotals();
+        if (totals.isEmpty()) {
+            throw new NoSuchElementException();
+        }
+        try (RunMetrics.Stage stage = metrics.start(RunMetrics.AGGREGATION)) {
+            int longestCollaborationTime = totals.getMaxTotal();
 
-        longestCollaborationsMap =
-                totalCollaborationPerPair.entrySet()
-                        .stream()
-                        .filter(entry -> entry.getValue() == longestCollaborationTime)
-                        .collect(toMap(entry -> entry.getKey(),entry -> entry.getValue()));
+            longestCollaborationsMap = new HashMap<>();
+            totals.forEach((employee1, employee2, total) -> {
+                if (total == longestCollaborationTime) {
+                    longestCollaborationsMap.put(ImmutablePair.of(employee1, employee2), total);
+                }
+            });
+            stage.addPairs(totals.size());
+        }
 
        return longestCollaborationsMap;
     }
 
     /**
-     * The method takes the aggregated project collaborations per pair of employees and sums the number
-     * of days they have worked together, so it reduces the list of numbers in the Multimap values
-     * returned by aggregateCollaborationsPerPair() method is reduced to a single number.
+     * Ranks the pairs of coworkers by the total time they have worked together in common projects.
+     * The totals are passed once through a bounded heap, so only the K longest ones are ever ranked.
+     *
+     * @param k the number of pairs to be returned
+     * @return Map of coworkers' ID pairs as keys and the time they have worked together as values,
+     *         iterated from the longest collaboration to the shortest one
+     */
+    public Map<Pair<Integer, Integer>, Integer> getTopCollaborations(int k) {
+        if (isSpilling()) {
+            TopPairs topPairs = TopPairs.of(k);
+            aggregateBySpilling(topPairs::offer);
+            return topPairs.toRankedMap();
+        }
+        PairTotals totals = getPairTotals();
+        try (RunMetrics.Stage stage = metrics.start(RunMetrics.AGGREGATION)) {
+            stage.addPairs(totals.size());
+            return TopPairs.of(k)
+                    .offerAll(totals)
+                    .toRankedMap();
+        }
+    }
+
+    /**
+     * Keeps the pairs with the longest total as the totals of the spilled partitions are handed on
+     */
+    private Map<Pair<Integer, Integer>, Integer> getLongestProjectCollaborationBySpilling() {
+        Map<Pair<Integer, Integer>, Integer> longest = new HashMap<>();
+        int[] longestCollaborationTime = {0};
+        aggregateBySpilling((employee1, employee2, total) -> {
+            if (total > longestCollaborationTime[0]) {
+                longestCollaborationTime[0] = total;
+                longest.clear();
+            }
+            if (total == longestCollaborationTime[0]) {
+                longest.put(ImmutablePair.of(employee1, employee2), total);
+            }
+        });
+        if (longest.isEmpty()) {
+            throw new NoSuchElementException();
+        }
+        longestCollaborationsMap = longest;
+        return longestCollaborationsMap;
+    }
+
+    /**
+     * Sums the collaborations of one sweep over all projects in a SpillingPairAggregator and hands the final
+     * total of every pair to the consumer, one spilled partition after another
+     */
+    private void aggregateBySpilling(PairTotals.PairTotalConsumer consumer) {
+        CollaborationEngine engine = getCollaborationEngine();
+        try (SpillingPairAggregator aggregator = SpillingPairAggregator.of(spillDirectory, spillMemoryBudget)) {
+            try (RunMetrics.Stage stage = metrics.start(RunMetrics.PAIR_EXTRACTION)) {
+                engine.extractProjectCollaborations(aggregator);
+                stage.addPairs(aggregator.getCollaborations()).addProjects(engine.getTimelines().size());
+            }
+            try (RunMetrics.Stage stage = metrics.start(RunMetrics.AGGREGATION)) {
+                aggregator.forEachTotal((employee1, employee2, total) -> {
+                    stage.addPairs(1);
+                    consumer.accept(employee1, employee2, total);
+                });
+            }
+        }
+    }
+
+    /**
+     * Ranks the collaborations within every project, the K longest ones are kept per project
+     * as the collaborations are found.
+     *
+     * @param k the number of collaborations to be returned per project
+     * @return map with the projects' IDs as keys and the collaborations in the project as values,
+     *         sorted from the longest collaboration to the shortest one
+     */
+    public Map<Integer, List<ProjectCollaboration>> getTopCollaborationsPerProject(int k) {
+        Map<Integer, List<ProjectCollaboration>> topCollaborationsPerProject = new HashMap<>();
+        getCollaborationEngine().findTopPairsPerProject(k).forEach((projectID, topPairs) -> {
+            List<ProjectCollaboration> collaborations = new ArrayList<>(topPairs.size());
+            topPairs.forEachRanked((employee1, employee2, daysWorked) ->
+                    collaborations.add(new ProjectCollaboration(employee1, employee2, projectID, daysWorked)));
+            topCollaborationsPerProject.put(projectID, collaborations);
+        });
+        return topCollaborationsPerProject;
+    }
+
+    /**
+     * Sums the number of days every pair of employees has worked together in all their common projects.
+     * The totals are returned as a boxed map, see getPairTotals() for the compact form they are
+     * accumulated in.
      *
      * @return Map of employeeIDs pairs as keys and the total number of cooperation days as value
      */
     public Map<Pair<Integer,Integer>, Integer> calculateTotalCollaborationPerPair() {
-        Multimap<Pair<Integer, Integer>, Integer> collaborationsPerPair = aggregateCollaborationsPerPair();
-        if (isNull(totalCollaborationPerPair)) {
-            totalCollaborationPerPair = new HashMap<>();
-        }
-        collaborationsPerPair.keySet()
-                .forEach(key ->
-                        totalCollaborationPerPair.put(
-                                key,
-                                collaborationsPerPair
-                                        .get(key)
-                                        .stream()
-                                        .reduce(0, Integer::sum)));
-        return totalCollaborationPerPair;
+        return getPairTotals().toMap();
     }
 
     /**
-     * The method aggregates the cooperation in projects for every pair of employees, creating a map (multimap),
-     * containing ImmutaablePair<EmployeeID, EmployeeID> as map keys and List of projectIDs as values.
-     * As values are lists, multimap was chosen as data structure.
+     * The days of every collaboration are added to the total of its pair of employees as soon as the
+     * collaboration is found, either by one sweep over all projects or, in parallel mode, by every worker
+     * in its own totals merged when the workers join.
      *
-     * @return Multimap of the list of common projects per every pair of coworkers
+     * @return the total number of cooperation days per pair of employees, keyed by the packed pair of IDs
      */
-    public Multimap<Pair<Integer, Integer>, Integer> aggregateCollaborationsPerPair() {
-        if (CollectionUtils.isEmpty(projectCollaborations)) {
-            this.extractProjectCollaborations();
+    public PairTotals getPairTotals() {
+        if (isNull(pairTotals)) {
+            CollaborationEngine engine = getCollaborationEngine();
+            try (RunMetrics.Stage stage = metrics.start(RunMetrics.PAIR_EXTRACTION)) {
+                pairTotals = isParallel()
+                        ? engine.calculatePairTotals(forkJoinPool)
+                        : engine.calculatePairTotals();
+                stage.addPairs(pairTotals.size()).addProjects(engine.getTimelines().size());
+            }
         }
-        Multimap<Pair<Integer, Integer>, Integer> collaborationsPerPair = ArrayListMultimap.create();
-        projectCollaborations.forEach(collaboration ->
-                collaborationsPerPair.put(
-                        ImmutablePair.of(collaboration.getEmployee1(), collaboration.getEmployee2()),
-                        collaboration.getDaysWorked())
-        );
-        return collaborationsPerPair;
+        return pairTotals;
     }
 
+    /**
+     * Lists the project collaborations behind the longest collaboration(s), looked up in the collaboration index
+     * or, in spilling mode, found by one sweep over the projects for all the longest pairs
+     *
+     * @return  List of ProjectCollaboration instances of the pair(s) of coworkers that have worked together
+     *          for the longest period of time
+     */
     public List<ProjectCollaboration> getWinnersCollaborations() {
         if (MapUtils.isEmpty(longestCollaborationsMap)) {
             getLongestProjectCollaboration();
         }
-        return longestCollaborationsMap
-                .keySet()
+        return getCollaborations(longestCollaborationsMap.keySet())
+                .values()
                 .stream()
-                .flatMap(pair -> extractCollaborationsForEmployees(
-                        getEmployeesMap().get(pair.getKey()),
-                        getEmployeesMap().get(pair.getValue())).stream())
+                .flatMap(List::stream)
                 .collect(Collectors.toUnmodifiableList());
     }
 
+    /**
+     * Drills down into the total time a pair of coworkers has worked together, looked up in the collaboration
+     * index or, in spilling mode, found by a sweep over the projects for the pair only
+     *
+     * @return  List of ProjectCollaboration instances of the pair, one per common project they have
+     *          worked together in, or an empty list if they have never worked together
+     */
+    public List<ProjectCollaboration> getCollaborations(int employee1, int employee2) {
+        if (isSpilling() && isNull(collaborationIndex)) {
+            return getCollaborations(List.of(ImmutablePair.of(employee1, employee2)))
+                    .values()
+                    .iterator()
+                    .next();
+        }
+        return getCollaborationIndex().getCollaborations(employee1, employee2);
+    }
+
+    /**
+     * Drills down into the totals of several pairs of coworkers at once, e.g. the longest or the top ones.
+     * In spilling mode, where the collaborations are not indexed, all pairs are found by one sweep over
+     * the projects, the requested pairs being looked up in a PairTotals by their packed keys.
+     *
+     * @param pairs the pairs of coworkers' IDs, in either order
+     * @return Map of the requested pairs as keys, in the order they are given, and their project
+     *         collaborations as values, an empty list for the pairs that have never worked together
+     */
+    public Map<Pair<Integer, Integer>, List<ProjectCollaboration>> getCollaborations(
+            Collection<Pair<Integer, Integer>> pairs) {
+        Map<Pair<Integer, Integer>, List<ProjectCollaboration>> collaborationsPerPair = new LinkedHashMap<>();
+        if (isSpilling() && isNull(collaborationIndex)) {
+            // the position of the pair's list + 1 is kept as the total of the pair, 0 is a pair not requested
+            PairTotals requestedPairs = PairTotals.create(pairs.size());
+            List<List<ProjectCollaboration>> collaborations = new ArrayList<>(pairs.size());
+            for (Pair<Integer, Integer> pair : pairs) {
+                if (requestedPairs.get(pair.getKey(), pair.getValue()) == 0) {
+                    collaborations.add(new ArrayList<>());
+                    requestedPairs.add(pair.getKey(), pair.getValue(), collaborations.size());
+                }
+            }
+            getCollaborationEngine().extractProjectCollaborations((employee1, employee2, projectID, daysWorked) -> {
+                int position = requestedPairs.get(employee1, employee2);
+                if (position > 0) {
+                    collaborations.get(position - 1)
+                            .add(new ProjectCollaboration(employee1, employee2, projectID, daysWorked));
+                }
+            });
+            pairs.forEach(pair -> collaborationsPerPair.put(pair,
+                    collaborations.get(requestedPairs.get(pair.getKey(), pair.getValue()) - 1)));
+        } else {
+            CollaborationIndex index = getCollaborationIndex();
+            pairs.forEach(pair -> collaborationsPerPair.put(pair,
+                    index.getCollaborations(pair.getKey(), pair.getValue())));
+        }
+        return collaborationsPerPair;
+    }
+
+    /**
+     * @return the index of the project collaborations per pair of coworkers, built from the collaborations
+     *         already extracted if any, otherwise from one sweep over the projects
+     */
+    public CollaborationIndex getCollaborationIndex() {
+        if (isNull(collaborationIndex)) {
+            CollaborationIndex index = CollaborationIndex.create();
+            if (CollectionUtils.isEmpty(projectCollaborations)) {
+                CollaborationEngine engine = getCollaborationEngine();
+                try (RunMetrics.Stage stage = metrics.start(RunMetrics.PAIR_EXTRACTION)) {
+                    engine.extractProjectCollaborations(index::add);
+                    stage.addPairs(index.size()).addProjects(engine.getTimelines().size());
+                }
+            } else {
+                projectCollaborations.forEach(collaboration -> index.add(
+                        collaboration.getEmployee1(),
+                        collaboration.getEmployee2(),
+                        collaboration.getProjectID(),
+                        collaboration.getDaysWorked()));
+            }
+            collaborationIndex = index.build();
+        }
+        return collaborationIndex;
+    }
+
+    public boolean isParallel() {
+        return !isNull(forkJoinPool);
+    }
+
+    public boolean isSpilling() {
+        return !isNull(spillDirectory);
+    }
+
     public Map<Integer, Employee> getEmployeesMap() {
         return employeesMap;
     }
@@ -1,20 +1,26 @@
 package com.rosenhristov.service;
 
+import com.rosenhristov.mapper.DateParser;
 import org.apache.commons.collections.CollectionUtils;
 import org.apache.commons.lang3.CharUtils;
 import org.apache.commons.lang3.StringUtils;
 
 import java.util.*;
-import java.util.stream.Collectors;
 
 import static java.util.Objects.isNull;
 
 /**
- * Analyses the date strings read from the CSV file and identifies the date format to let the Mapper instance
- * parse the dates successfully to java.util.Date objects by supporting CSV files containing dates formatted
+ * Analyses the date strings read from the CSV file and identifies the date format, compiled to a DateParser,
+ * to let the Mapper instance parse the dates successfully by supporting CSV files containing dates formatted
  * using different formats. The analyser expects that all dates in a file are formatted one and the same way.
  * If the CSV file contained dates formatted differently on different rows, parsing by Mapper will fail.
  *
+ * The dates are analysed in a single pass keeping only running statistics per date part - the min and max
+ * values and the min and max widths - so the memory used does not depend on the number of rows. The analysis
+ * stops as soon as the format is unambiguous, i.e. the year part is known and one of the other parts has
+ * had a value greater than 12, or when the sample size has been reached. A reader whose sample leaves the
+ * format ambiguous may keep analysing the rows after it while isAmbiguous() is true.
+ *
  * Supported formats:
  * 'dd/mm/yyyy', 'mm/dd/yyyy', 'yyyy/mm/dd', 'yyyy/dd/mm',
  * 'dd-mm-yyyy', 'mm-dd-yyyy', 'yyyy-mm-dd, 'yyyy-dd-mm',
@@ -32,17 +38,23 @@ public class DateAnalyst {
     public static final String YEAR = "yyyy";
     public static final String DELIMITER_REGEX = "[\\\\/\\-\\.\\:\\;\\s_]";
 
+    private static final String DELIMITERS = "\\/-.:; _\t";
+
     private List<List<String>> rowStrings;
+    private int sampleSize = Integer.MAX_VALUE;
+    private int analysedRows;
 
     private String dateFormat;
+    private DateParser dateParser;
     private String leftFormatToken;
     private String midFormatToken;
     private String rightFormatToken;
     private String delimiter;
 
-    private Set<String> leftTokens = new HashSet<>();
-    private Set<String> midTokens = new HashSet<>();
-    private Set<String> rightTokens = new HashSet<>();
+    private final DatePartStatistics leftTokens = new DatePartStatistics();
+    private final DatePartStatistics midTokens = new DatePartStatistics();
+    private final DatePartStatistics rightTokens = new DatePartStatistics();
+    private final DatePartStatistics[] dateParts = {leftTokens, midTokens, rightTokens};
 
     private DateAnalyst() {
     }
@@ -51,6 +63,10 @@ public class DateAnalyst {
         this.rowStrings = rowStrings;
     }
 
+    private DateAnalyst(int sampleSize) {
+        this.sampleSize = sampleSize;
+    }
+
     public static DateAnalyst of(List<List<String>> rowStrings) {
         if(CollectionUtils.isEmpty(rowStrings)) {
             throw new IllegalArgumentException("No data provided to analyse.");
@@ -58,30 +74,50 @@ public class DateAnalyst {
         return new DateAnalyst(rowStrings);
     }
 
+    /**
+     * Creates an analyst the rows are streamed to one by one with analyse(row) while needsMoreRows() is true
+     *
+     * @param sampleSize the max number of rows to be analysed
+     */
+    public static DateAnalyst sampling(int sampleSize) {
+        if (sampleSize < 1) {
+            throw new IllegalArgumentException("The sample should contain at least one row.");
+        }
+        return new DateAnalyst(sampleSize);
+    }
+
+    /**
+     * Adds the dates of the row to the running statistics of the date parts
+     *
+     * @param row the cells of a CSV line: EmpID, ProjectID, DateFrom, DateTo
+     * @return true if more rows are needed to identify the date format
+     */
+    public boolean analyse(List<String> row) {
+        analyseDate(row.get(2)); // 'dateFrom' date
+        if (row.size() > 3 && !row.get(3).equalsIgnoreCase("null")) {
+            analyseDate(row.get(3)); // 'dateTo' date if not NULL
+        }
+        analysedRows++;
+        return needsMoreRows();
+    }
+
+    /**
+     * @return false once the date format is unambiguous or the sample size has been reached
+     */
+    public boolean needsMoreRows() {
+        return analysedRows < sampleSize && !isUnambiguous();
+    }
+
     public DateAnalyst identifyDateFormat() {
-        //collect all date strings from the file
-        List<String> dateStrings = new LinkedList<>();
-        rowStrings.forEach(row -> {
-            dateStrings.add(row.get(2)); // 'dateFrom' dates
-            if (!row.get(3).equalsIgnoreCase("null")) {
-                dateStrings.add(row.get(3)); // 'dateTo' dates if not NULL
-            }
-        });
-
-        // collect all left, middle and right date parts in separate collections
-        // and identify delimiter
-        dateStrings.forEach(date -> {
-            String[] dateTokens = date.split(DELIMITER_REGEX);
-            if (isNull(this.delimiter)) {
-                identifyDelimiter(date);
-                if (StringUtils.isEmpty(delimiter)) {
-                    throw new IllegalArgumentException("No delimiter recognized");
-                }
+        if (!isNull(rowStrings)) {
+            Iterator<List<String>> rows = rowStrings.iterator();
+            while (rows.hasNext() && analyse(rows.next())) {
+                // the statistics are collected by analyse(row)
             }
-            leftTokens.add(dateTokens[0]);
-            midTokens.add(dateTokens[1]);
-            rightTokens.add(dateTokens[2]);
-        });
+        }
+        if (analysedRows == 0) {
+            throw new IllegalArgumentException("No data provided to analyse.");
+        }
 
         // identify which tokens are 'dd', 'mm' or 'yyyy'
         identifyDay();
@@ -95,16 +131,67 @@ public class DateAnalyst {
                 .append(delimiter)
                 .append(rightFormatToken)
                 .toString();
+        this.dateParser = DateParser.compile(dateFormat);
 
         return this;
     }
 
+    /**
+     * Splits the date in its parts, without a regex, and adds every part to the statistics of its position
+     */
+    private void analyseDate(String date) {
+        if (isNull(this.delimiter)) {
+            identifyDelimiter(date);
+            if (StringUtils.isEmpty(delimiter)) {
+                throw new IllegalArgumentException("No delimiter recognized");
+            }
+        }
+        int part = 0;
+        int partStart = 0;
+        for (int i = 0; i <= date.length(); i++) {
+            if (i == date.length() || DELIMITERS.indexOf(date.charAt(i)) >= 0) {
+                if (part < dateParts.length) {
+                    dateParts[part].add(date, partStart, i);
+                }
+                part++;
+                partStart = i + 1;
+            }
+        }
+        if (part < dateParts.length) {
+            throw new IllegalArgumentException("This date format has not valid date tokens");
+        }
+    }
+
+    /**
+     * @return true while the rows analysed do not tell the date format, e.g. none of their dates has had
+     *         a day greater than 12, whether the sample size has been reached or not
+     */
+    public boolean isAmbiguous() {
+        return !isUnambiguous();
+    }
+
+    private boolean isUnambiguous() {
+        int yearParts = 0;
+        int dayParts = 0;
+        int monthParts = 0;
+        for (DatePartStatistics datePart : dateParts) {
+            if (datePart.isYear()) {
+                yearParts++;
+            } else if (datePart.isDay()) {
+                dayParts++;
+            } else if (datePart.isDayOrMonth()) {
+                monthParts++;
+            }
+        }
+        return yearParts == 1 && dayParts == 1 && monthParts == 1;
+    }
+
     private void identifyDay() {
-        if (isDay(List.copyOf(leftTokens))) {
+        if (leftTokens.isDay()) {
             leftFormatToken = DAY;
-        } else if (isDay(List.copyOf(midTokens))) {
+        } else if (midTokens.isDay()) {
             midFormatToken = DAY;
-        } else if (isDay(List.copyOf(rightTokens))) {
+        } else if (rightTokens.isDay()) {
             rightFormatToken = DAY;
         } else {
             throw new IllegalArgumentException("This date format has not valid date tokens");
@@ -112,11 +199,11 @@ public class DateAnalyst {
     }
 
     private void identifyMonth() {
-        if (isMonth(List.copyOf(leftTokens))) {
+        if (leftTokens.isMonth()) {
             leftFormatToken = MONTH;
-        } else if (isMonth(List.copyOf(midTokens))) {
+        } else if (midTokens.isMonth()) {
             midFormatToken = MONTH;
-        } else if (isMonth(List.copyOf(rightTokens))) {
+        } else if (rightTokens.isMonth()) {
             rightFormatToken = MONTH;
         } else {
             throw new IllegalArgumentException("This date format has not valid date tokens");
@@ -124,11 +211,11 @@ public class DateAnalyst {
     }
 
     private void identifyYear() {
-        if (isYear(List.copyOf(leftTokens))) {
+        if (leftTokens.isYear()) {
             leftFormatToken = YEAR;
-        } else if (isYear(List.copyOf(midTokens))) {
+        } else if (midTokens.isYear()) {
             midFormatToken = YEAR;
-        } else if (isYear(List.copyOf(rightTokens))) {
+        } else if (rightTokens.isYear()) {
             rightFormatToken = YEAR;
         } else {
             throw new IllegalArgumentException("This date format has not valid date tokens");
@@ -145,150 +232,80 @@ public class DateAnalyst {
         }
     }
 
-    private boolean isDay(List<String> tokens) {
-        List<String> randomTokens = getRandomTokens(tokens);
-        List<String> dayTokens = randomTokens
-                .stream()
-                .filter(token -> isDayOrMonthToken(token))
-                .collect(Collectors.toList());
-
-        // if random string verification did not work skip integer verification
-        if (dayTokens.size() != randomTokens.size()) {
-            return false;
+    /**
+     * Running statistics of the date parts found at one and the same position of the dates
+     */
+    private static class DatePartStatistics {
+
+        private int count;
+        private int minWidth = Integer.MAX_VALUE;
+        private int maxWidth;
+        private int maxValue;
+        private boolean numeric = true;
+
+        private void add(String date, int from, int to) {
+            int value = 0;
+            for (int i = from; i < to; i++) {
+                char ch = date.charAt(i);
+                if (!CharUtils.isAsciiNumeric(ch)) {
+                    numeric = false;
+                    break;
+                }
+                value = value * 10 + (ch - '0');
+            }
+            count++;
+            minWidth = Math.min(minWidth, to - from);
+            maxWidth = Math.max(maxWidth, to - from);
+            maxValue = Math.max(maxValue, value);
         }
 
-        return areDayTokens(tokens);
-    }
-
-    private boolean isMonth(List<String> tokens) {
-        List<String> randomTokens = getRandomTokens(tokens);
-        List<String> monthTokens = randomTokens
-                .stream()
-                .filter(token -> isDayOrMonthToken(token))
-                .collect(Collectors.toList());
-
-        // if random string verification did not work skip integer verification
-        if (monthTokens.size() != randomTokens.size()) {
-            return false;
+        /**
+         * Checks if the date parts are of type 'dd' or 'mm', i.e. '03' or '25'
+         */
+        private boolean isDayOrMonth() {
+            return count > 0 && numeric && minWidth == 2 && maxWidth == 2;
         }
 
-        return areMonthTokens(tokens);
-    }
+        /**
+         * Checks if the date parts are day ('dd') parts - if the max value is greater than 12,
+         * i.e. within the range [1:31]
+         */
+        private boolean isDay() {
+            return isDayOrMonth() && maxValue > 12;
+        }
 
-    private boolean isYear(List<String> tokens) {
-        List<String> randomTokens = getRandomTokens(tokens);
-        List<String> yearTokens =
-                randomTokens
-                        .stream()
-                        .filter(token -> isYearToken(token))
-                        .collect(Collectors.toList());
+        /**
+         * Checks if the date parts are month ('mm') parts - if the max value is not greater than 12,
+         * i.e. in the range [1:12]
+         */
+        private boolean isMonth() {
+            return isDayOrMonth() && maxValue <= 12;
+        }
 
-        return yearTokens.size() == randomTokens.size();
+        /**
+         * Checks if the date parts are years, i,.e. of type 'yyyy', e.g. '2023'
+         */
+        private boolean isYear() {
+            return count > 0 && numeric && minWidth == 4 && maxWidth == 4;
+        }
     }
 
-    /**
-     * Checks if the date part is of type 'dd' or 'mm',
-     * i.e. '03' or '25'
-     *
-     * @param token - the date part to be verified
-     * @return
-     */
-    private boolean isDayOrMonthToken(String token) {
-        return token.length() == 2 && isNumber(token);
+    public String getDateFormat() {
+        return this.dateFormat;
     }
 
     /**
-     * Checks if the date part is year, i,.e. of type 'yyyy', e.g. '2023'
-     *
-     * @param token - the date part to be verified
-     * @return
+     * @return the parser compiled from the identified date format, which decodes the dates
+     *         of the file straight to epoch days
      */
-    private boolean isYearToken(String token) {
-        return token.length() == 4 && isNumber(token);
+    public DateParser getDateParser() {
+        return this.dateParser;
     }
 
     /**
-     * Checks if the date parts already identified as 'dd' or 'mm' token are day ('dd') part - if the max value
-     * in the collection is greater than 12, i.e. within the range [1:31]
-     *
-     * @param tokens - the collection of day parts to be verified
-     * @return true if the tokens are identified as 'dd' tokens, otherwise returns false
+     * @return the number of rows analysed before the format has been identified
      */
-    private boolean areDayTokens(List<String> tokens) {
-        OptionalInt optMax = getMaxValue(tokens);
-        checkMaxInt(optMax);
-
-        return optMax.getAsInt() > 12;
-    }
-
-    /**
-     * Checks if the date parts already identified as 'dd' or 'mm' token are month ('mm') parts - if
-     * the max value in the collection is less than 12, i.e. in the range [1:12]
-     *
-     * @param tokens - the collection of day parts to be verified
-     * @return true if the tokens are identified as 'mm' tokens, otherwise returns false
-     */
-    private boolean areMonthTokens(List<String> tokens) {
-        OptionalInt optMax = getMaxValue(tokens);
-        checkMaxInt(optMax);
-
-        return getMaxValue(tokens).getAsInt() <= 12;
-    }
-
-    private OptionalInt getMaxValue(List<String> tokens) {
-        return tokens.stream()
-                .map(token -> {
-                    token = token.startsWith("0")
-                            ? token.substring(1)
-                            : token;
-                    return Integer.parseInt(token);
-                })
-                .mapToInt(num -> num)
-                .max();
-    }
-
-    private List<String> getRandomTokens(List<String> tokens) {
-        Set<String> randomTokens = new HashSet<>();
-
-        int randomTokensSize = tokens.size() > 10 ? 10 : tokens.size();
-
-        // if collection is small, return it to be fully checked
-        if (randomTokensSize == tokens.size()) {
-            return tokens;
-        }
-
-        /*
-         * else get 10 random but unique (stored in Set) tokens for initial string verification
-         * to avoid iteration along the full date parts collection later, during integer verification,
-         * in case this is not the needed collection of date parts
-         */
-        Random rand = new Random();
-        do {
-            randomTokens.add(
-                    tokens.get(
-                            rand.nextInt(
-                                    tokens.size())));
-        } while (randomTokens.size() < randomTokensSize);
-
-        return List.copyOf(randomTokens);
-    }
-
-    private boolean isNumber(String token) {
-        for (char ch : token.toCharArray()) {
-            if(!CharUtils.isAsciiNumeric(ch)) {
-                return false;
-            }
-        }
-        return true;
-    }
-
-    private void checkMaxInt(OptionalInt optMax) {
-        if(optMax.isEmpty()) {
-            throw new IllegalArgumentException("No max value identified in date tokens");
-        }
-    }
-
-    public String getDateFormat() {
-        return this.dateFormat;
+    public int getAnalysedRows() {
+        return this.analysedRows;
     }
 }
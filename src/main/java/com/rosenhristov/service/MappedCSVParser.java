@@ -0,0 +1,294 @@
+package com.rosenhristov.service;
+
+import com.opencsv.CSVParser;
+import com.rosenhristov.mapper.DateParser;
+import com.rosenhristov.utils.Constants;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+import static com.rosenhristov.mapper.DateParser.INVALID_DATE;
+import static com.rosenhristov.utils.Constants.*;
+import static com.rosenhristov.utils.Utils.isValidLine;
+import static java.util.Objects.isNull;
+
+/**
+ * Byte level parser of the four column CSV files: EmpID, ProjectID, DateFrom, DateTo.
+ * The file is memory-mapped and every line is scanned directly in the mapped buffer, the IDs and the dates
+ * (by the DateParser) are decoded from the digits without creating any String. Lines that do not have
+ * the expected shape, e.g. the title row, quoted cells or cells with spaces, are handed to OpenCSV instead.
+ */
+public class MappedCSVParser {
+
+    /**
+     * The file is mapped in windows of this size, a window is moved to the start of the line it cuts
+     */
+    private static final long MAPPED_WINDOW_SIZE = 1L << 28;
+
+    private static final int LINE_SEARCH_BLOCK_SIZE = 1 << 12;
+
+    private static final int STREAM_BLOCK_SIZE = 1 << 20;
+
+    private final File csvFile;
+
+    private final DateParser dateParser;
+
+    private final CSVParser fallbackParser = new CSVParser();
+    private long fallbackLines;
+
+    private MappedCSVParser(File csvFile, DateParser dateParser) {
+        this.csvFile = csvFile;
+        this.dateParser = dateParser;
+    }
+
+    public static MappedCSVParser of(File csvFile, DateParser dateParser) {
+        return new MappedCSVParser(csvFile, isNull(dateParser)
+                ? DateParser.compile(Constants.DEFAULT_DATE_FORMAT)
+                : dateParser);
+    }
+
+    /**
+     * Parses the whole file and hands every valid row to the consumer in the order of the file.
+     *
+     * @param consumer receives the decoded rows
+     */
+    public void parse(AssignmentConsumer consumer) {
+        parse(0, csvFile.length(), consumer);
+    }
+
+    /**
+     * Parses the lines in a range of bytes of the file, e.g. one of the ranges found by splitOnLines,
+     * and hands every valid row to the consumer in the order of the file.
+     *
+     * @param from the position of the first byte of the range, the start of a line
+     * @param to the position after the last byte of the range, the start of a line or the end of the file
+     * @param consumer receives the decoded rows
+     */
+    public void parse(long from, long to, AssignmentConsumer consumer) {
+        try (RandomAccessFile file = new RandomAccessFile(csvFile, "r");
+             FileChannel channel = file.getChannel()) {
+            long rangeEnd = Math.min(to, channel.size());
+            long windowStart = from;
+            while (windowStart < rangeEnd) {
+                long windowSize = Math.min(MAPPED_WINDOW_SIZE, rangeEnd - windowStart);
+                MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, windowStart, windowSize);
+                boolean lastWindow = windowStart + windowSize == rangeEnd;
+                int processed = parseWindow(buffer, (int) windowSize, lastWindow, consumer);
+                if (processed == 0 && !lastWindow) {
+                    throw new RuntimeException(FILE_READING_CSV_EXCEPTION_MESSAGE + csvFile.getName());
+                }
+                windowStart += processed;
+            }
+        } catch (IOException ioe) {
+            throw new RuntimeException(FILE_READING_IO_EXCEPTION_MESSAGE + csvFile.getName(), ioe);
+        }
+    }
+
+    /**
+     * Parses the lines read from a stream of the bytes of the file, e.g. of a compressed file, which cannot be
+     * mapped. The stream is read into a block and the whole lines of the block are parsed, the line the block
+     * cuts is moved to the start of the block before it is filled again, and the block grows if one line
+     * does not fit in it.
+     *
+     * @param consumer receives the decoded rows in the order of the stream
+     * @return the number of bytes read from the stream
+     */
+    public long parse(InputStream input, AssignmentConsumer consumer) {
+        ByteBuffer block = ByteBuffer.allocate(STREAM_BLOCK_SIZE);
+        long bytesRead = 0;
+        try {
+            int read;
+            while ((read = input.read(block.array(), block.position(), block.remaining())) >= 0) {
+                bytesRead += read;
+                block.position(block.position() + read);
+                if (block.hasRemaining()) {
+                    continue;
+                }
+                int processed = parseWindow(block, block.position(), false, consumer);
+                if (processed == 0) {
+                    block = ByteBuffer.allocate(block.capacity() << 1).put(block.flip());
+                } else {
+                    block.flip().position(processed);
+                    block.compact();
+                }
+            }
+            parseWindow(block, block.position(), true, consumer);
+        } catch (IOException ioe) {
+            throw new RuntimeException(FILE_READING_IO_EXCEPTION_MESSAGE + csvFile.getName(), ioe);
+        }
+        return bytesRead;
+    }
+
+    /**
+     * Parses a block of whole lines of the file already read into a buffer, e.g. by the read stage of the
+     * ProcessingPipeline, and hands every valid row to the consumer in the order of the block.
+     *
+     * @param size the number of bytes of the block, starting at position 0 of the buffer
+     */
+    void parseBlock(ByteBuffer block, int size, AssignmentConsumer consumer) {
+        parseWindow(block, size, true, consumer);
+    }
+
+    /**
+     * Splits the file into ranges of about the same size, every range starting at the start of a line,
+     * so the ranges can be parsed independently. A range is moved to the start of the line it cuts.
+     *
+     * @param ranges the number of ranges wanted, fewer are returned if the file has fewer lines
+     * @return the boundaries of the ranges: range i covers the bytes from boundaries[i] to boundaries[i + 1]
+     */
+    public static long[] splitOnLines(File csvFile, int ranges) {
+        try (RandomAccessFile file = new RandomAccessFile(csvFile, "r");
+             FileChannel channel = file.getChannel()) {
+            long fileSize = channel.size();
+            long[] boundaries = new long[ranges + 1];
+            int found = 1;
+            ByteBuffer block = ByteBuffer.allocate(LINE_SEARCH_BLOCK_SIZE);
+            for (int range = 1; range < ranges; range++) {
+                long boundary = nextLineStart(channel, Math.max(fileSize * range / ranges,
+                        boundaries[found - 1]), fileSize, block);
+                if (boundary > boundaries[found - 1] && boundary < fileSize) {
+                    boundaries[found++] = boundary;
+                }
+            }
+            boundaries[found++] = fileSize;
+            return Arrays.copyOf(boundaries, found);
+        } catch (IOException ioe) {
+            throw new RuntimeException(FILE_READING_IO_EXCEPTION_MESSAGE + csvFile.getName(), ioe);
+        }
+    }
+
+    /**
+     * @return the position after the first line break at or after the position, or the file size
+     */
+    private static long nextLineStart(FileChannel channel, long position, long fileSize, ByteBuffer block)
+            throws IOException {
+        while (position < fileSize) {
+            block.clear();
+            int read = channel.read(block, position);
+            if (read <= 0) {
+                break;
+            }
+            for (int i = 0; i < read; i++) {
+                if (block.get(i) == '\n') {
+                    return position + i + 1;
+                }
+            }
+            position += read;
+        }
+        return fileSize;
+    }
+
+    /**
+     * @return the number of bytes of the window that have been parsed, i.e. up to the start of the last
+     *         line if the window cuts it and it is not the last window of the file
+     */
+    private int parseWindow(ByteBuffer buffer, int windowSize, boolean lastWindow,
+                            AssignmentConsumer consumer) {
+        int lineStart = 0;
+        for (int position = 0; position < windowSize; position++) {
+            if (buffer.get(position) == '\n') {
+                parseLine(buffer, lineStart, position, consumer);
+                lineStart = position + 1;
+            }
+        }
+        if (lastWindow && lineStart < windowSize) {
+            parseLine(buffer, lineStart, windowSize, consumer);
+            return windowSize;
+        }
+        return lineStart;
+    }
+
+    private void parseLine(ByteBuffer buffer, int lineStart, int lineEnd, AssignmentConsumer consumer) {
+        if (lineEnd > lineStart && buffer.get(lineEnd - 1) == '\r') {
+            lineEnd--;
+        }
+        if (lineEnd == lineStart) {
+            return;
+        }
+        int firstComma = indexOfComma(buffer, lineStart, lineEnd);
+        int secondComma = firstComma < 0 ? -1 : indexOfComma(buffer, firstComma + 1, lineEnd);
+        int thirdComma = secondComma < 0 ? -1 : indexOfComma(buffer, secondComma + 1, lineEnd);
+        if (thirdComma >= 0 && indexOfComma(buffer, thirdComma + 1, lineEnd) < 0) {
+            int employeeID = parseInt(buffer, lineStart, firstComma);
+            int projectID = parseInt(buffer, firstComma + 1, secondComma);
+            int startDay = dateParser.parseEpochDay(buffer, secondComma + 1, thirdComma);
+            int endDay = dateParser.parseEpochDay(buffer, thirdComma + 1, lineEnd);
+            if (employeeID >= 0 && projectID >= 0 && startDay != INVALID_DATE && endDay != INVALID_DATE) {
+                consumer.accept(employeeID, projectID, startDay, endDay);
+                return;
+            }
+        }
+        byte[] line = new byte[lineEnd - lineStart];
+        buffer.get(lineStart, line);
+        parseIrregularLine(new String(line, StandardCharsets.UTF_8), consumer);
+    }
+
+    /**
+     * Parses a line that is not a plain row of four unquoted cells with OpenCSV
+     */
+    private void parseIrregularLine(String line, AssignmentConsumer consumer) {
+        fallbackLines++;
+        String[] cells;
+        try {
+            cells = fallbackParser.parseLine(line);
+        } catch (IOException ioe) {
+            throw new RuntimeException(FILE_READING_CSV_EXCEPTION_MESSAGE + csvFile.getName(), ioe);
+        }
+        if (!isValidLine(cells) || Arrays.toString(cells).equals(TITLE_ROW)) {
+            return;
+        }
+        int startDay = dateParser.parseEpochDay(cells[2].trim());
+        int endDay = cells.length > 3 ? dateParser.parseEpochDay(cells[3].trim()) : INVALID_DATE;
+        if (startDay == INVALID_DATE || endDay == INVALID_DATE) {
+            throw new RuntimeException("Problem parsing date on line " + line);
+        }
+        try {
+            consumer.accept(Integer.parseInt(cells[0].trim()), Integer.parseInt(cells[1].trim()), startDay, endDay);
+        } catch (NumberFormatException e) {
+            throw new RuntimeException("Problem parsing line " + line, e);
+        }
+    }
+
+    private int indexOfComma(ByteBuffer buffer, int from, int to) {
+        for (int position = from; position < to; position++) {
+            if (buffer.get(position) == ',') {
+                return position;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Decodes a non-negative integer cell found between the from (inclusive) and to (exclusive) positions
+     *
+     * @return the value of the cell or -1 if the cell is not a plain integer
+     */
+    private int parseInt(ByteBuffer buffer, int from, int to) {
+        if (from == to || to - from > 10) {
+            return -1;
+        }
+        long value = 0;
+        for (int position = from; position < to; position++) {
+            byte b = buffer.get(position);
+            if (b < '0' || b > '9') {
+                return -1;
+            }
+            value = value * 10 + (b - '0');
+        }
+        return value > Integer.MAX_VALUE ? -1 : (int) value;
+    }
+
+    /**
+     * @return the number of lines parsed by OpenCSV during the last parse, the title row included
+     */
+    public long getFallbackLines() {
+        return fallbackLines;
+    }
+}
@@ -0,0 +1,297 @@
+package com.rosenhristov.service;
+
+import com.rosenhristov.model.AssignmentTable;
+
+import java.io.File;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.IntBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.concurrent.*;
+
+import static com.rosenhristov.utils.Constants.FILE_READING_CSV_EXCEPTION_MESSAGE;
+import static java.util.Objects.isNull;
+
+/**
+ * Pipelined execution of reading and processing a CSV file. Three stages run at the same time, each on its
+ * own thread of a small platform pool:
+ * - read: reads the file in blocks of whole lines,
+ * - map: decodes the rows of every block with the MappedCSVParser and the date format of the file,
+ * - aggregate: appends the rows to an AssignmentTable and groups them into the timelines of their projects.
+ * The stages are connected by bounded queues of blocks and of row batches. A stage ahead of the others
+ * blocks once its queue is full, so at most a few blocks are held in memory at any time, and the blocks
+ * and the batches are recycled instead of being allocated again. The disk is read while the rows read
+ * before are decoded and grouped, so processing a large file takes about as long as its slowest stage.
+ *
+ * The collaborations are swept only after the last row has been grouped, because a row read later in the
+ * file replaces the period the employee had in the project.
+ */
+public class ProcessingPipeline {
+
+    private static final int STAGES = 3;
+    private static final int DEFAULT_BLOCK_SIZE = 1 << 20;
+    private static final int DEFAULT_QUEUE_CAPACITY = 4;
+
+    /**
+     * Marks the end of the file in the queue of the blocks read
+     */
+    private static final ByteBuffer END_OF_BLOCKS = ByteBuffer.allocate(0);
+
+    /**
+     * Marks the end of the file in the queue of the row batches mapped
+     */
+    private static final RowBatch END_OF_BATCHES = new RowBatch(0);
+
+    private final File csvFile;
+    private final CSVFileReader csvFileReader;
+    private int blockSize = DEFAULT_BLOCK_SIZE;
+    private int queueCapacity = DEFAULT_QUEUE_CAPACITY;
+    private RunMetrics metrics = RunMetrics.disabled();
+
+    private ProcessingPipeline(File csvFile, CSVFileReader csvFileReader) {
+        this.csvFile = csvFile;
+        this.csvFileReader = csvFileReader;
+    }
+
+    public static ProcessingPipeline of(String filePath) throws FileNotFoundException {
+        return new ProcessingPipeline(new File(filePath), CSVFileReader.of(filePath));
+    }
+
+    public static ProcessingPipeline of(File csvFile) {
+        return new ProcessingPipeline(csvFile, CSVFileReader.of(csvFile));
+    }
+
+    /**
+     * @param blockSize the number of bytes read at once, longer than the longest line of the file
+     */
+    public ProcessingPipeline withBlockSize(int blockSize) {
+        if (blockSize < 1) {
+            throw new IllegalArgumentException("The block size should be a positive number.");
+        }
+        this.blockSize = blockSize;
+        return this;
+    }
+
+    /**
+     * @param queueCapacity the number of blocks or batches a stage can get ahead of the next one
+     */
+    public ProcessingPipeline withQueueCapacity(int queueCapacity) {
+        if (queueCapacity < 1) {
+            throw new IllegalArgumentException("The queue capacity should be a positive number.");
+        }
+        this.queueCapacity = queueCapacity;
+        return this;
+    }
+
+    /**
+     * Records the stages in the metrics of a run, every stage on its own thread: the read with the bytes
+     * read, the mapping with the rows decoded and the grouping with the rows and the projects grouped.
+     * The DataProcessor returned records its stages in the same metrics.
+     */
+    public ProcessingPipeline withMetrics(RunMetrics metrics) {
+        this.metrics = isNull(metrics) ? RunMetrics.disabled() : metrics;
+        csvFileReader.withMetrics(this.metrics);
+        return this;
+    }
+
+    /**
+     * Runs the stages and waits for the last one to finish. If a stage fails, the other stages are
+     * interrupted and the exception of the failed stage is thrown.
+     *
+     * @return the processor of the rows of the file, with the rows already grouped by project
+     */
+    public DataProcessor run() {
+        MappedCSVParser parser = csvFileReader.createMappedParser();
+
+        BlockingQueue<ByteBuffer> freeBlocks = new ArrayBlockingQueue<>(queueCapacity + 2);
+        BlockingQueue<ByteBuffer> readBlocks = new ArrayBlockingQueue<>(queueCapacity + 1);
+        BlockingQueue<RowBatch> freeBatches = new ArrayBlockingQueue<>(queueCapacity + 2);
+        BlockingQueue<RowBatch> mappedBatches = new ArrayBlockingQueue<>(queueCapacity + 1);
+        for (int i = 0; i < queueCapacity + 2; i++) {
+            freeBlocks.add(ByteBuffer.allocate(blockSize));
+            freeBatches.add(new RowBatch(blockSize / 16));
+        }
+
+        ExecutorService executor = Executors.newFixedThreadPool(STAGES);
+        CompletionService<DataProcessor> stages = new ExecutorCompletionService<>(executor);
+        try {
+            stages.submit(() -> read(freeBlocks, readBlocks));
+            stages.submit(() -> map(parser, readBlocks, freeBlocks, freeBatches, mappedBatches));
+            Future<DataProcessor> aggregation = stages.submit(() -> aggregate(mappedBatches, freeBatches));
+            for (int stage = 0; stage < STAGES; stage++) {
+                CSVFileReader.await(stages.take(), csvFile);
+            }
+            return CSVFileReader.await(aggregation, csvFile);
+        } catch (InterruptedException ie) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException(FILE_READING_CSV_EXCEPTION_MESSAGE + csvFile.getName(), ie);
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    /**
+     * Read stage: fills the free blocks from the file, decompressed if it is compressed, and passes on every
+     * block up to its last line break, the bytes of the line the block cuts are moved to the start of the next block
+     */
+    private DataProcessor read(BlockingQueue<ByteBuffer> freeBlocks,
+                               BlockingQueue<ByteBuffer> readBlocks) throws IOException, InterruptedException {
+        try (RunMetrics.Stage stage = metrics.start(RunMetrics.READ);
+             ReadableByteChannel channel = openChannel()) {
+            ByteBuffer block = takeFree(freeBlocks);
+            int read;
+            while ((read = channel.read(block)) >= 0) {
+                stage.addBytesRead(read);
+                if (block.hasRemaining()) {
+                    continue;
+                }
+                int lineEnd = lastLineBreak(block) + 1;
+                if (lineEnd == 0) {
+                    throw new RuntimeException(FILE_READING_CSV_EXCEPTION_MESSAGE + csvFile.getName()
+                            + ": a line is longer than the block size of " + blockSize + " bytes");
+                }
+                ByteBuffer next = takeFree(freeBlocks);
+                next.put(block.array(), lineEnd, block.position() - lineEnd);
+                block.limit(lineEnd).position(0);
+                readBlocks.put(block);
+                block = next;
+            }
+            if (block.position() > 0) {
+                block.flip();
+                readBlocks.put(block);
+            }
+            readBlocks.put(END_OF_BLOCKS);
+        }
+        return null;
+    }
+
+    /**
+     * @return the channel of the bytes of the file, a compressed file is inflated by the read stage itself
+     */
+    private ReadableByteChannel openChannel() throws IOException {
+        return CompressedInput.isCompressed(csvFile)
+                ? Channels.newChannel(CompressedInput.openDecompressed(csvFile))
+                : FileChannel.open(csvFile.toPath(), StandardOpenOption.READ);
+    }
+
+    private static ByteBuffer takeFree(BlockingQueue<ByteBuffer> freeBlocks) throws InterruptedException {
+        ByteBuffer block = freeBlocks.take();
+        block.clear();
+        return block;
+    }
+
+    private static int lastLineBreak(ByteBuffer block) {
+        for (int position = block.position() - 1; position >= 0; position--) {
+            if (block.get(position) == '\n') {
+                return position;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Map stage: decodes the rows of every block read into a free batch and gives the block back
+     */
+    private DataProcessor map(MappedCSVParser parser,
+                              BlockingQueue<ByteBuffer> readBlocks, BlockingQueue<ByteBuffer> freeBlocks,
+                              BlockingQueue<RowBatch> freeBatches, BlockingQueue<RowBatch> mappedBatches)
+            throws InterruptedException {
+        try (RunMetrics.Stage stage = metrics.start(RunMetrics.MAPPING)) {
+            ByteBuffer block;
+            while ((block = readBlocks.take()) != END_OF_BLOCKS) {
+                RowBatch batch = freeBatches.take();
+                batch.clear();
+                parser.parseBlock(block, block.limit(), batch);
+                stage.addRows(batch.size);
+                freeBlocks.put(block);
+                mappedBatches.put(batch);
+            }
+            mappedBatches.put(END_OF_BATCHES);
+        }
+        return null;
+    }
+
+    /**
+     * Aggregation stage: appends every batch to the table, groups its rows by project and gives it back
+     */
+    private DataProcessor aggregate(BlockingQueue<RowBatch> mappedBatches, BlockingQueue<RowBatch> freeBatches)
+            throws InterruptedException {
+        AssignmentTable assignments = AssignmentTable.create();
+        CollaborationEngine collaborationEngine;
+        try (RunMetrics.Stage stage = metrics.start(RunMetrics.GROUPING)) {
+            CollaborationEngine.Grouping grouping = CollaborationEngine.Grouping.create();
+            RowBatch batch;
+            while ((batch = mappedBatches.take()) != END_OF_BATCHES) {
+                batch.appendTo(assignments);
+                batch.forEach(grouping);
+                freeBatches.put(batch);
+            }
+            collaborationEngine = grouping.build();
+            stage.addRows(assignments.size()).addProjects(collaborationEngine.getTimelines().size());
+        }
+        return DataProcessor.of(assignments, collaborationEngine).withMetrics(metrics);
+    }
+
+    public String getDateFormat() {
+        return csvFileReader.getDateFormat();
+    }
+
+    /**
+     * Rows of a block decoded by the map stage, stored column by column
+     */
+    private static class RowBatch implements AssignmentConsumer {
+
+        private int[] employeeIDs;
+        private int[] projectIDs;
+        private int[] startDays;
+        private int[] endDays;
+        private int size;
+
+        private RowBatch(int capacity) {
+            employeeIDs = new int[capacity];
+            projectIDs = new int[capacity];
+            startDays = new int[capacity];
+            endDays = new int[capacity];
+        }
+
+        @Override
+        public void accept(int employeeID, int projectID, int startDay, int endDay) {
+            if (size == employeeIDs.length) {
+                int capacity = Math.max(16, size << 1);
+                employeeIDs = Arrays.copyOf(employeeIDs, capacity);
+                projectIDs = Arrays.copyOf(projectIDs, capacity);
+                startDays = Arrays.copyOf(startDays, capacity);
+                endDays = Arrays.copyOf(endDays, capacity);
+            }
+            employeeIDs[size] = employeeID;
+            projectIDs[size] = projectID;
+            startDays[size] = startDay;
+            endDays[size] = endDay;
+            size++;
+        }
+
+        private void appendTo(AssignmentTable assignments) {
+            assignments.addColumns(
+                    IntBuffer.wrap(employeeIDs, 0, size),
+                    IntBuffer.wrap(projectIDs, 0, size),
+                    IntBuffer.wrap(startDays, 0, size),
+                    IntBuffer.wrap(endDays, 0, size),
+                    size);
+        }
+
+        private void forEach(AssignmentConsumer consumer) {
+            for (int row = 0; row < size; row++) {
+                consumer.accept(employeeIDs[row], projectIDs[row], startDays[row], endDays[row]);
+            }
+        }
+
+        private void clear() {
+            size = 0;
+        }
+    }
+}
@@ -0,0 +1,35 @@
+package com.rosenhristov.service;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * Java Flight Recorder event of the sweep over the assignments of one project, so a recording shows which
+ * project a slow pair extraction has spent its time in. The number of overlaps grows with the square of the
+ * employees working in the project at the same time, which the peak of the active assignments shows.
+ * A threshold set on the event in the recording settings keeps only the projects that take long.
+ */
+@Name("com.rosenhristov.ProjectSweep")
+@Label("Project Sweep")
+@Description("Sweeping the assignments of a project to find its collaborations")
+@Category({"Employees", "Projects"})
+@StackTrace(false)
+public class ProjectSweepEvent extends Event {
+
+    @Label("Project ID")
+    int projectID;
+
+    @Label("Assignments")
+    int assignments;
+
+    @Label("Overlaps")
+    @Description("The overlapping assignments visited by the sweep, i.e. the collaborations found")
+    long overlaps;
+
+    @Label("Peak Active Assignments")
+    int peakActiveAssignments;
+}
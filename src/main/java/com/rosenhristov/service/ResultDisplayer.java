@@ -1,9 +1,17 @@
 package com.rosenhristov.service;
 
 import com.rosenhristov.model.ProjectCollaboration;
+import org.apache.commons.lang3.StringUtils;
+
 import javax.swing.*;
+import javax.swing.table.JTableHeader;
+import java.awt.*;
+import java.awt.event.MouseAdapter;
+import java.awt.event.MouseEvent;
 import java.util.List;
 
+import static org.apache.commons.lang3.math.NumberUtils.isDigits;
+
 public class ResultDisplayer {
 
     List<ProjectCollaboration> collaborationsToDisplay;
@@ -16,16 +24,38 @@ public class ResultDisplayer {
         return new ResultDisplayer(collaborationsToDisplay);
     }
 
+    /**
+     * Displays the collaborations in a table reading them on demand, see CollaborationTableModel.
+     * A click on the header of a column sorts the rows by it and an employee or project ID entered
+     * in the filter shows only the rows with the ID.
+     */
     public void displayCollaborationsAsDataGrid() {
-        String[] columnHeaders = {"Employee ID #1", "Employee ID #2", "Project ID", "Days worked"};
-        Object[][] data = prepareDataGrid();
+        CollaborationTableModel model = CollaborationTableModel.of(collaborationsToDisplay);
+
+        JTable table = new JTable(model);
+        table.setFillsViewportHeight(true);
+
+        JTableHeader header = table.getTableHeader();
+        header.addMouseListener(new MouseAdapter() {
+            @Override
+            public void mouseClicked(MouseEvent e) {
+                int column = table.convertColumnIndexToModel(header.columnAtPoint(e.getPoint()));
+                if (column >= 0) {
+                    model.toggleSortBy(column);
+                }
+            }
+        });
 
-        JTable table = new JTable(data, columnHeaders);
+        JTextField filterTextField = new JTextField(12);
+        filterTextField.addActionListener(e -> filter(model, filterTextField));
 
-        JScrollPane scrollPane = new JScrollPane(table);
+        JPanel filterPanel = new JPanel(new FlowLayout(FlowLayout.LEFT));
+        filterPanel.add(new JLabel("Employee or project ID:"));
+        filterPanel.add(filterTextField);
 
-        JPanel panel = new JPanel();
-        panel.add(scrollPane);
+        JPanel panel = new JPanel(new BorderLayout());
+        panel.add(filterPanel, BorderLayout.NORTH);
+        panel.add(new JScrollPane(table), BorderLayout.CENTER);
 
         JFrame frame = new JFrame("Longest collaborations in common projects");
         frame.setDefaultCloseOperation(JFrame.EXIT_ON_CLOSE);
@@ -34,37 +64,18 @@ public class ResultDisplayer {
         frame.setVisible(true);
     }
 
-    private Integer[][] prepareDataGrid() {
-        int rows = collaborationsToDisplay.size();
-        int cols = 4;
-        Integer[][] data = new Integer[rows][4];
-        for (int row = 0; row < data.length; row++) {
-            ProjectCollaboration collaboration = collaborationsToDisplay.get(row);
-            for (int col = 0; col < cols; col++) {
-                data[row][col] = getRequiredData(col, collaboration);
-            }
-        }
-        return data;
-    }
-
-    private Integer getRequiredData(int column, ProjectCollaboration collaboration) {
-        Integer data;
-        switch(column) {
-            case 0:
-                data = collaboration.getEmployee1();
-                break;
-            case 1:
-                data = collaboration.getEmployee2();
-                break;
-            case 2:
-                data = collaboration.getProjectID();
-                break;
-            case 3:
-                data = collaboration.getDaysWorked();
-                break;
-
-            default: data = 0;
+    private void filter(CollaborationTableModel model, JTextField filterTextField) {
+        String text = StringUtils.trim(filterTextField.getText());
+        if (StringUtils.isEmpty(text)) {
+            model.filter(null);
+        } else if (isDigits(text) && text.length() < 10) {
+            int id = Integer.parseInt(text);
+            model.filter(collaboration -> collaboration.getEmployee1() == id
+                    || collaboration.getEmployee2() == id
+                    || collaboration.getProjectID() == id);
+        } else {
+            JOptionPane.showMessageDialog(
+                    null, "The filter should be an employee or a project ID", "Error!", JOptionPane.ERROR_MESSAGE);
         }
-        return data;
     }
 }
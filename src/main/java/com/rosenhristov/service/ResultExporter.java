@@ -0,0 +1,349 @@
+package com.rosenhristov.service;
+
+import com.rosenhristov.model.PairTotals;
+import com.rosenhristov.model.ProjectCollaboration;
+import com.rosenhristov.model.TopPairs;
+import org.apache.commons.lang3.tuple.Pair;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Map;
+
+import static java.nio.file.StandardOpenOption.CREATE;
+import static java.nio.file.StandardOpenOption.TRUNCATE_EXISTING;
+import static java.nio.file.StandardOpenOption.WRITE;
+
+/**
+ * Writes the results to a file or a stream as text, CSV or JSON. The results are encoded straight into
+ * one reused byte buffer, the integers digit by digit and the names as ASCII, and the buffer is written
+ * to the channel whenever it is full, so no String is built per row and exporting millions of rows is
+ * bound by the disk rather than by the formatting.
+ *
+ * The text format separates the values by a comma and a space, the CSV format by a comma only.
+ */
+public class ResultExporter implements Closeable {
+
+    public static final String TEXT_FORMAT = "text";
+    public static final String CSV_FORMAT = "csv";
+    public static final String JSON_FORMAT = "json";
+
+    private static final int BUFFER_SIZE = 1 << 16;
+    private static final String COLLABORATION_HEADER = "Employee ID #1, Employee ID #2, Project ID, Days worked";
+    private static final String PAIR_TOTAL_HEADER = "Employee ID #1, Employee ID #2, Days worked";
+
+    private final WritableByteChannel channel;
+    private final boolean ownsChannel;
+    private final String format;
+    private final String separator;
+    private final ByteBuffer buffer = ByteBuffer.allocate(BUFFER_SIZE);
+    private final byte[] digits = new byte[11];
+
+    private ResultExporter(WritableByteChannel channel, boolean ownsChannel, String format) {
+        if (!TEXT_FORMAT.equals(format) && !CSV_FORMAT.equals(format) && !JSON_FORMAT.equals(format)) {
+            throw new IllegalArgumentException("Not a supported export format: " + format);
+        }
+        this.channel = channel;
+        this.ownsChannel = ownsChannel;
+        this.format = format;
+        this.separator = CSV_FORMAT.equals(format) ? "," : ", ";
+    }
+
+    /**
+     * @param file the file to export to, replaced if it exists
+     * @param format TEXT_FORMAT, CSV_FORMAT or JSON_FORMAT
+     */
+    public static ResultExporter of(File file, String format) throws IOException {
+        return new ResultExporter(FileChannel.open(file.toPath(), CREATE, TRUNCATE_EXISTING, WRITE), true, format);
+    }
+
+    /**
+     * @param outputStream the stream to export to, flushed but not closed when the exporter is closed
+     * @param format TEXT_FORMAT, CSV_FORMAT or JSON_FORMAT
+     */
+    public static ResultExporter of(OutputStream outputStream, String format) {
+        return new ResultExporter(Channels.newChannel(outputStream), false, format);
+    }
+
+    /**
+     * Exports every collaboration, one per row
+     */
+    public ResultExporter exportCollaborations(List<ProjectCollaboration> collaborations) throws IOException {
+        return export(() -> writeCollaborations(collaborations));
+    }
+
+    /**
+     * Exports the total of every pair of coworkers, in no particular order
+     */
+    public ResultExporter exportPairTotals(PairTotals pairTotals) throws IOException {
+        return export(() -> writePairs(pairTotals::forEach));
+    }
+
+    /**
+     * Exports the top pairs of coworkers, starting with the longest total
+     */
+    public ResultExporter exportTopPairs(TopPairs topPairs) throws IOException {
+        return export(() -> writePairs(topPairs::forEachRanked));
+    }
+
+    /**
+     * Exports the report of the batch mode: the total of every pair followed by the projects it has worked
+     * together in, and in JSON the file the collaborations are found in. The projects of all pairs are
+     * found at once, before the report is written, see DataProcessor.getCollaborations(pairs).
+     *
+     * @param source the path of the file or files read
+     * @param collaborations the totals of the pairs to report, e.g. the longest or the top ones
+     * @param dataProcessor the processor the collaborations are found by
+     */
+    public ResultExporter exportReport(String source, Map<Pair<Integer, Integer>, Integer> collaborations,
+                                       DataProcessor dataProcessor) throws IOException {
+        return export(() -> writeReport(source, collaborations, dataProcessor));
+    }
+
+    /**
+     * Writes the bytes encoded so far to the channel
+     */
+    public void flush() throws IOException {
+        buffer.flip();
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+        buffer.clear();
+    }
+
+    /**
+     * Flushes the exporter and closes the file it exports to
+     */
+    @Override
+    public void close() throws IOException {
+        try {
+            flush();
+        } finally {
+            if (ownsChannel) {
+                channel.close();
+            }
+        }
+    }
+
+    public String getFormat() {
+        return format;
+    }
+
+    /**
+     * Runs the writing of an export, the buffer being flushed while it is encoded, the exceptions
+     * of the channel are carried out of the pair consumers unchecked and thrown here again
+     */
+    private ResultExporter export(Runnable writing) throws IOException {
+        try {
+            writing.run();
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+        return this;
+    }
+
+    private void writeCollaborations(List<ProjectCollaboration> collaborations) {
+        if (isJson()) {
+            writeAscii("[");
+            for (int i = 0; i < collaborations.size(); i++) {
+                writeAscii(i == 0 ? "\n" : ",\n");
+                writeCollaborationJson(collaborations.get(i));
+            }
+            writeAscii("\n]\n");
+        } else {
+            writeHeader(COLLABORATION_HEADER);
+            for (ProjectCollaboration collaboration : collaborations) {
+                writeCollaborationRow(collaboration);
+            }
+        }
+    }
+
+    private void writeReport(String source, Map<Pair<Integer, Integer>, Integer> collaborations,
+                             DataProcessor dataProcessor) {
+        Map<Pair<Integer, Integer>, List<ProjectCollaboration>> projectCollaborationsPerPair =
+                dataProcessor.getCollaborations(collaborations.keySet());
+        if (isJson()) {
+            writeAscii("{\"file\":");
+            writeJsonString(source);
+            writeAscii(",\"collaborations\":[");
+            boolean first = true;
+            for (Map.Entry<Pair<Integer, Integer>, Integer> collaboration : collaborations.entrySet()) {
+                int employee1 = collaboration.getKey().getKey();
+                int employee2 = collaboration.getKey().getValue();
+                writeAscii(first ? "\n{\"employee1\":" : ",\n{\"employee1\":");
+                writeInt(employee1);
+                writeAscii(",\"employee2\":");
+                writeInt(employee2);
+                writeAscii(",\"daysWorked\":");
+                writeInt(collaboration.getValue());
+                writeAscii(",\"projects\":[");
+                List<ProjectCollaboration> projectCollaborations =
+                        projectCollaborationsPerPair.get(collaboration.getKey());
+                for (int i = 0; i < projectCollaborations.size(); i++) {
+                    writeAscii(i == 0 ? "{\"projectID\":" : ",{\"projectID\":");
+                    writeInt(projectCollaborations.get(i).getProjectID());
+                    writeAscii(",\"daysWorked\":");
+                    writeInt(projectCollaborations.get(i).getDaysWorked());
+                    writeByte('}');
+                }
+                writeAscii("]}");
+                first = false;
+            }
+            writeAscii("\n]}\n");
+        } else {
+            writeHeader(COLLABORATION_HEADER);
+            for (Map.Entry<Pair<Integer, Integer>, Integer> collaboration : collaborations.entrySet()) {
+                int employee1 = collaboration.getKey().getKey();
+                int employee2 = collaboration.getKey().getValue();
+                writeInt(employee1);
+                writeAscii(separator);
+                writeInt(employee2);
+                writeAscii(separator);
+                writeAscii("total");
+                writeAscii(separator);
+                writeInt(collaboration.getValue());
+                writeByte('\n');
+                projectCollaborationsPerPair.get(collaboration.getKey()).forEach(this::writeCollaborationRow);
+            }
+        }
+    }
+
+    private void writePairs(PairSource pairs) {
+        if (isJson()) {
+            writeAscii("[");
+            boolean[] first = {true};
+            pairs.forEach((employee1, employee2, total) -> {
+                writeAscii(first[0] ? "\n{\"employee1\":" : ",\n{\"employee1\":");
+                writeInt(employee1);
+                writeAscii(",\"employee2\":");
+                writeInt(employee2);
+                writeAscii(",\"daysWorked\":");
+                writeInt(total);
+                writeByte('}');
+                first[0] = false;
+            });
+            writeAscii("\n]\n");
+        } else {
+            writeHeader(PAIR_TOTAL_HEADER);
+            pairs.forEach((employee1, employee2, total) -> {
+                writeInt(employee1);
+                writeAscii(separator);
+                writeInt(employee2);
+                writeAscii(separator);
+                writeInt(total);
+                writeByte('\n');
+            });
+        }
+    }
+
+    private void writeHeader(String header) {
+        writeAscii(CSV_FORMAT.equals(format) ? header.replace(", ", ",") : header);
+        writeByte('\n');
+    }
+
+    private void writeCollaborationRow(ProjectCollaboration collaboration) {
+        writeInt(collaboration.getEmployee1());
+        writeAscii(separator);
+        writeInt(collaboration.getEmployee2());
+        writeAscii(separator);
+        writeInt(collaboration.getProjectID());
+        writeAscii(separator);
+        writeInt(collaboration.getDaysWorked());
+        writeByte('\n');
+    }
+
+    private void writeCollaborationJson(ProjectCollaboration collaboration) {
+        writeAscii("{\"employee1\":");
+        writeInt(collaboration.getEmployee1());
+        writeAscii(",\"employee2\":");
+        writeInt(collaboration.getEmployee2());
+        writeAscii(",\"projectID\":");
+        writeInt(collaboration.getProjectID());
+        writeAscii(",\"daysWorked\":");
+        writeInt(collaboration.getDaysWorked());
+        writeByte('}');
+    }
+
+    /**
+     * Encodes the decimal digits of the value from the last one backwards into the scratch array,
+     * the value is negated as a long so Integer.MIN_VALUE is encoded as well
+     */
+    private void writeInt(int value) {
+        long remaining = Math.abs((long) value);
+        int start = digits.length;
+        do {
+            digits[--start] = (byte) ('0' + remaining % 10);
+            remaining /= 10;
+        } while (remaining > 0);
+        if (value < 0) {
+            digits[--start] = '-';
+        }
+        ensureRemaining(digits.length - start);
+        buffer.put(digits, start, digits.length - start);
+    }
+
+    private void writeAscii(String value) {
+        ensureRemaining(value.length());
+        for (int i = 0; i < value.length(); i++) {
+            buffer.put((byte) value.charAt(i));
+        }
+    }
+
+    private void writeByte(char value) {
+        ensureRemaining(1);
+        buffer.put((byte) value);
+    }
+
+    private void writeJsonString(String value) {
+        StringBuilder escaped = new StringBuilder(value.length() + 2).append('"');
+        for (char ch : value.toCharArray()) {
+            if (ch == '"' || ch == '\\') {
+                escaped.append('\\').append(ch);
+            } else if (ch < 0x20) {
+                escaped.append(String.format("\\u%04x", (int) ch));
+            } else {
+                escaped.append(ch);
+            }
+        }
+        byte[] bytes = escaped.append('"').toString().getBytes(StandardCharsets.UTF_8);
+        for (int offset = 0; offset < bytes.length; offset += BUFFER_SIZE) {
+            int length = Math.min(BUFFER_SIZE, bytes.length - offset);
+            ensureRemaining(length);
+            buffer.put(bytes, offset, length);
+        }
+    }
+
+    /**
+     * Writes the buffer to the channel if it has less room than needed, the value written is never
+     * longer than the buffer
+     */
+    private void ensureRemaining(int length) {
+        if (buffer.remaining() < length) {
+            try {
+                flush();
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+    }
+
+    private boolean isJson() {
+        return JSON_FORMAT.equals(format);
+    }
+
+    /**
+     * The pairs exported, with their totals, i.e. the forEach of PairTotals or the forEachRanked of TopPairs
+     */
+    @FunctionalInterface
+    private interface PairSource {
+        void forEach(PairTotals.PairTotalConsumer consumer);
+    }
+}
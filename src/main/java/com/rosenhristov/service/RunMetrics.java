@@ -0,0 +1,312 @@
+package com.rosenhristov.service;
+
+import javax.management.JMException;
+import javax.management.ObjectName;
+import java.io.PrintStream;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * Metrics of one run: the wall time, the rows, pairs and projects processed, the bytes read and the bytes
+ * allocated by every stage of the run, i.e. reading the file, identifying the date format, mapping the rows,
+ * grouping them, extracting the pairs and aggregating them. A stage is recorded by the thread running it,
+ * so the allocated bytes are the ones of that thread, taken from the ThreadMXBean if the JVM supports it
+ * and -1 otherwise. The stages run in a fork-join pool are recorded as a whole by the calling thread.
+ *
+ * The metrics of a run can be printed, written as JSON or registered as an MXBean.
+ * The disabled instance records nothing and is used by default. Every stage also commits a StageEvent,
+ * even with the disabled instance, so a flight recording shows the stages of any run.
+ */
+public class RunMetrics implements RunMetricsMXBean {
+
+    public static final String READ = "read";
+    public static final String DATE_DETECTION = "date-detection";
+    public static final String MAPPING = "mapping";
+    public static final String GROUPING = "grouping";
+    public static final String PAIR_EXTRACTION = "pair-extraction";
+    public static final String AGGREGATION = "aggregation";
+
+    private static final String OBJECT_NAME = "com.rosenhristov:type=RunMetrics,name=";
+
+    private static final RunMetrics DISABLED = new RunMetrics(false);
+
+    private final boolean enabled;
+    private final long startNanos = System.nanoTime();
+    private final List<StageMetrics> stages = new CopyOnWriteArrayList<>();
+    private volatile long endNanos = startNanos;
+
+    private RunMetrics(boolean enabled) {
+        this.enabled = enabled;
+    }
+
+    public static RunMetrics create() {
+        return new RunMetrics(true);
+    }
+
+    /**
+     * @return the instance that records nothing, so the code of the stages does not check for metrics
+     */
+    public static RunMetrics disabled() {
+        return DISABLED;
+    }
+
+    /**
+     * Starts recording a stage on the current thread, the stage is added to the run once it is closed
+     *
+     * @param name the name of the stage, e.g. READ
+     */
+    public Stage start(String name) {
+        return new Stage(this, name);
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * @return the nanoseconds from the creation of the metrics to the end of the last stage recorded
+     */
+    @Override
+    public long getWallTimeNanos() {
+        return endNanos - startNanos;
+    }
+
+    /**
+     * @return the rows of the run, i.e. the rows of the read stages, or of the mapping stages if the rows
+     *         are decoded apart from reading the file, as the ProcessingPipeline does
+     */
+    @Override
+    public long getRows() {
+        long rowsRead = getRows(READ);
+        return rowsRead > 0 ? rowsRead : getRows(MAPPING);
+    }
+
+    private long getRows(String stageName) {
+        return stages.stream()
+                .filter(stage -> stage.getName().equals(stageName))
+                .mapToLong(StageMetrics::getRows)
+                .sum();
+    }
+
+    @Override
+    public long getBytesRead() {
+        return stages.stream().mapToLong(StageMetrics::getBytesRead).sum();
+    }
+
+    @Override
+    public long getAllocatedBytes() {
+        return stages.stream().mapToLong(stage -> Math.max(0, stage.getAllocatedBytes())).sum();
+    }
+
+    /**
+     * @return the stages recorded in the order they have ended
+     */
+    @Override
+    public List<StageMetrics> getStages() {
+        return List.copyOf(stages);
+    }
+
+    /**
+     * Registers the metrics in the platform MBean server, e.g. to be read by the monitoring of a job
+     *
+     * @param runName the name of the run, unique among the registered runs
+     * @return the name the metrics are registered with
+     */
+    public ObjectName registerMBean(String runName) {
+        try {
+            ObjectName objectName = new ObjectName(OBJECT_NAME + ObjectName.quote(runName));
+            ManagementFactory.getPlatformMBeanServer().registerMBean(this, objectName);
+            return objectName;
+        } catch (JMException e) {
+            throw new RuntimeException("Problem occurred while registering the metrics of run " + runName, e);
+        }
+    }
+
+    public void print(PrintStream out) {
+        out.print(this);
+        out.flush();
+    }
+
+    /**
+     * @return the metrics as a JSON object with the totals of the run and an array of its stages
+     */
+    public String toJson() {
+        StringBuilder json = new StringBuilder(128 + 160 * stages.size())
+                .append("{\"wallTimeNanos\":").append(getWallTimeNanos())
+                .append(",\"rows\":").append(getRows())
+                .append(",\"bytesRead\":").append(getBytesRead())
+                .append(",\"allocatedBytes\":").append(getAllocatedBytes())
+                .append(",\"stages\":[");
+        for (int i = 0; i < stages.size(); i++) {
+            StageMetrics stage = stages.get(i);
+            json.append(i == 0 ? "" : ",")
+                    .append("{\"name\":\"").append(stage.getName())
+                    .append("\",\"thread\":\"").append(escapeJson(stage.getThread()))
+                    .append("\",\"wallTimeNanos\":").append(stage.getWallTimeNanos())
+                    .append(",\"rows\":").append(stage.getRows())
+                    .append(",\"pairs\":").append(stage.getPairs())
+                    .append(",\"projects\":").append(stage.getProjects())
+                    .append(",\"bytesRead\":").append(stage.getBytesRead())
+                    .append(",\"allocatedBytes\":").append(stage.getAllocatedBytes())
+                    .append('}');
+        }
+        return json.append("]}").toString();
+    }
+
+    private static String escapeJson(String value) {
+        return value.replace("\\", "\\\\").replace("\"", "\\\"");
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder text = new StringBuilder(String.format("%-16s %12s %12s %10s %10s %14s %14s%n",
+                "Stage", "Time (ms)", "Rows", "Pairs", "Projects", "Bytes read", "Allocated"));
+        for (StageMetrics stage : stages) {
+            text.append(String.format("%-16s %12.3f %12d %10d %10d %14d %14d%n",
+                    stage.getName(), stage.getWallTimeNanos() / 1e6, stage.getRows(), stage.getPairs(),
+                    stage.getProjects(), stage.getBytesRead(), stage.getAllocatedBytes()));
+        }
+        return text.append(String.format("%-16s %12.3f %12d %10s %10s %14d %14d%n",
+                "total", getWallTimeNanos() / 1e6, getRows(), "", "", getBytesRead(), getAllocatedBytes()))
+                .toString();
+    }
+
+    private void add(StageMetrics stage, long stageEndNanos) {
+        stages.add(stage);
+        synchronized (this) {
+            endNanos = Math.max(endNanos, stageEndNanos);
+        }
+    }
+
+    /**
+     * @return the bytes allocated by the current thread so far or -1 if the JVM does not count them
+     */
+    private static long getAllocatedBytesOfCurrentThread() {
+        ThreadMXBean threadMXBean = ManagementFactory.getThreadMXBean();
+        if (threadMXBean instanceof com.sun.management.ThreadMXBean) {
+            com.sun.management.ThreadMXBean allocationCounter = (com.sun.management.ThreadMXBean) threadMXBean;
+            if (allocationCounter.isThreadAllocatedMemorySupported() && allocationCounter.isThreadAllocatedMemoryEnabled()) {
+                return allocationCounter.getThreadAllocatedBytes(Thread.currentThread().getId());
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * A stage being recorded, to be used in a try-with-resources block on the thread running the stage
+     */
+    public static class Stage implements AutoCloseable {
+
+        private final RunMetrics metrics;
+        private final String name;
+        private final long startNanos;
+        private final long startAllocatedBytes;
+        private final StageEvent event;
+        private long rows;
+        private long pairs;
+        private long projects;
+        private long bytesRead;
+
+        private Stage(RunMetrics metrics, String name) {
+            this.metrics = metrics;
+            this.name = name;
+            this.startNanos = metrics.enabled ? System.nanoTime() : 0;
+            this.startAllocatedBytes = metrics.enabled ? getAllocatedBytesOfCurrentThread() : -1;
+            this.event = StageEvent.of(name);
+            event.begin();
+        }
+
+        public Stage addRows(long rows) {
+            this.rows += rows;
+            return this;
+        }
+
+        public Stage addPairs(long pairs) {
+            this.pairs += pairs;
+            return this;
+        }
+
+        public Stage addProjects(long projects) {
+            this.projects += projects;
+            return this;
+        }
+
+        public Stage addBytesRead(long bytesRead) {
+            this.bytesRead += bytesRead;
+            return this;
+        }
+
+        @Override
+        public void close() {
+            event.finish(rows, pairs, projects, bytesRead);
+            if (!metrics.enabled) {
+                return;
+            }
+            long endNanos = System.nanoTime();
+            long allocatedBytes = startAllocatedBytes < 0 ? -1 : getAllocatedBytesOfCurrentThread() - startAllocatedBytes;
+            metrics.add(new StageMetrics(name, Thread.currentThread().getName(), endNanos - startNanos,
+                    rows, pairs, projects, bytesRead, allocatedBytes), endNanos);
+        }
+    }
+
+    /**
+     * The metrics of a stage that has ended
+     */
+    public static class StageMetrics {
+
+        private final String name;
+        private final String thread;
+        private final long wallTimeNanos;
+        private final long rows;
+        private final long pairs;
+        private final long projects;
+        private final long bytesRead;
+        private final long allocatedBytes;
+
+        private StageMetrics(String name, String thread, long wallTimeNanos, long rows, long pairs, long projects,
+                             long bytesRead, long allocatedBytes) {
+            this.name = name;
+            this.thread = thread;
+            this.wallTimeNanos = wallTimeNanos;
+            this.rows = rows;
+            this.pairs = pairs;
+            this.projects = projects;
+            this.bytesRead = bytesRead;
+            this.allocatedBytes = allocatedBytes;
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        public String getThread() {
+            return thread;
+        }
+
+        public long getWallTimeNanos() {
+            return wallTimeNanos;
+        }
+
+        public long getRows() {
+            return rows;
+        }
+
+        public long getPairs() {
+            return pairs;
+        }
+
+        public long getProjects() {
+            return projects;
+        }
+
+        public long getBytesRead() {
+            return bytesRead;
+        }
+
+        public long getAllocatedBytes() {
+            return allocatedBytes;
+        }
+    }
+}
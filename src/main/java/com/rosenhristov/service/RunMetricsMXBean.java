@@ -0,0 +1,19 @@
+package com.rosenhristov.service;
+
+import java.util.List;
+
+/**
+ * The attributes of RunMetrics exposed over JMX, see RunMetrics.registerMBean
+ */
+public interface RunMetricsMXBean {
+
+    long getWallTimeNanos();
+
+    long getRows();
+
+    long getBytesRead();
+
+    long getAllocatedBytes();
+
+    List<RunMetrics.StageMetrics> getStages();
+}
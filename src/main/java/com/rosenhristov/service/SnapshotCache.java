@@ -0,0 +1,196 @@
+package com.rosenhristov.service;
+
+import com.rosenhristov.model.AssignmentTable;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.IntBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.zip.CRC32C;
+
+import static com.rosenhristov.utils.Constants.FILE_READING_IO_EXCEPTION_MESSAGE;
+import static java.util.Objects.isNull;
+
+/**
+ * Cache of the parsed CSV files in a directory of binary snapshots. A snapshot holds the identified date
+ * format and the rows of the file column by column as ints, so it is loaded with one mapped read and bulk
+ * copies into an AssignmentTable, without parsing a line or analysing a date again.
+ *
+ * A snapshot is used only if the path, the size, the last modification time and the CRC32C of the content
+ * of the CSV file are still the ones stored in it. The checksum is calculated over the mapped file only
+ * when the size and the modification time match.
+ */
+public class SnapshotCache {
+
+    private static final long MAGIC = 0x454D50534E415031L; // "EMPSNAP1"
+    private static final int VERSION = 1;
+    private static final String SNAPSHOT_EXTENSION = ".snapshot";
+    private static final long HASHED_WINDOW_SIZE = 1L << 28;
+
+    private final File cacheDirectory;
+
+    private SnapshotCache(File cacheDirectory) {
+        this.cacheDirectory = cacheDirectory;
+    }
+
+    public static SnapshotCache of(File cacheDirectory) {
+        if (isNull(cacheDirectory)) {
+            throw new IllegalArgumentException("No cache directory provided.");
+        }
+        if (!cacheDirectory.isDirectory() && !cacheDirectory.mkdirs()) {
+            throw new IllegalArgumentException("Cannot create cache directory " + cacheDirectory.getPath());
+        }
+        return new SnapshotCache(cacheDirectory);
+    }
+
+    /**
+     * @return the snapshot of the file or null if there is no snapshot or the file has changed since
+     */
+    public Snapshot load(File csvFile) {
+        File snapshotFile = getSnapshotFile(csvFile);
+        if (!snapshotFile.isFile()) {
+            return null;
+        }
+        try (RandomAccessFile file = new RandomAccessFile(snapshotFile, "r");
+             FileChannel channel = file.getChannel()) {
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            if (buffer.remaining() < Long.BYTES + Integer.BYTES
+                    || buffer.getLong() != MAGIC
+                    || buffer.getInt() != VERSION
+                    || !readString(buffer).equals(getPath(csvFile))
+                    || buffer.getLong() != csvFile.length()
+                    || buffer.getLong() != csvFile.lastModified()
+                    || buffer.getLong() != hashContent(csvFile)) {
+                return null;
+            }
+            String dateFormat = readString(buffer);
+            int rows = buffer.getInt();
+
+            IntBuffer columns = buffer.asIntBuffer();
+            AssignmentTable assignments = AssignmentTable.create();
+            assignments.addColumns(
+                    columns.duplicate().position(0).limit(rows),
+                    columns.duplicate().position(rows).limit(2 * rows),
+                    columns.duplicate().position(2 * rows).limit(3 * rows),
+                    columns.duplicate().position(3 * rows).limit(4 * rows),
+                    rows);
+            return new Snapshot(dateFormat.isEmpty() ? null : dateFormat, assignments);
+        } catch (IOException | RuntimeException e) {
+            return null; // a snapshot that cannot be read is just a cache miss, the file is parsed again
+        }
+    }
+
+    /**
+     * Writes the snapshot of the parsed file to a temporary file first and moves it in place,
+     * so a reader never maps a snapshot that has not been written completely. Snapshots are limited
+     * to one mapped buffer, i.e. about 130 million rows.
+     */
+    public void save(File csvFile, String dateFormat, AssignmentTable assignments) {
+        File snapshotFile = getSnapshotFile(csvFile);
+        try {
+            byte[] path = getPath(csvFile).getBytes(StandardCharsets.UTF_8);
+            byte[] format = (isNull(dateFormat) ? "" : dateFormat).getBytes(StandardCharsets.UTF_8);
+            int headerSize = Long.BYTES + Integer.BYTES + Integer.BYTES + path.length
+                    + 3 * Long.BYTES + Integer.BYTES + format.length + Integer.BYTES;
+            long snapshotSize = headerSize + 4L * Integer.BYTES * assignments.size();
+            if (snapshotSize > Integer.MAX_VALUE) {
+                return; // larger than one mapped buffer, such a file is parsed every time
+            }
+
+            File temporaryFile = File.createTempFile(snapshotFile.getName(), ".tmp", cacheDirectory);
+            try (RandomAccessFile file = new RandomAccessFile(temporaryFile, "rw");
+                 FileChannel channel = file.getChannel()) {
+                MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, snapshotSize);
+                buffer.putLong(MAGIC)
+                        .putInt(VERSION)
+                        .putInt(path.length).put(path)
+                        .putLong(csvFile.length())
+                        .putLong(csvFile.lastModified())
+                        .putLong(hashContent(csvFile))
+                        .putInt(format.length).put(format)
+                        .putInt(assignments.size());
+
+                IntBuffer columns = buffer.asIntBuffer();
+                int rows = assignments.size();
+                assignments.putColumns(
+                        columns.duplicate().position(0),
+                        columns.duplicate().position(rows),
+                        columns.duplicate().position(2 * rows),
+                        columns.duplicate().position(3 * rows));
+                buffer.force();
+            }
+            Files.move(temporaryFile.toPath(), snapshotFile.toPath(),
+                    StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException ioe) {
+            throw new RuntimeException("Problem occurred while writing snapshot " + snapshotFile.getName(), ioe);
+        }
+    }
+
+    /**
+     * @return the snapshot file of the CSV file, named after the file and the hash of its path
+     */
+    public File getSnapshotFile(File csvFile) {
+        return new File(cacheDirectory,
+                csvFile.getName() + "-" + Integer.toHexString(getPath(csvFile).hashCode()) + SNAPSHOT_EXTENSION);
+    }
+
+    private String getPath(File csvFile) {
+        try {
+            return csvFile.getCanonicalPath();
+        } catch (IOException ioe) {
+            return csvFile.getAbsolutePath();
+        }
+    }
+
+    /**
+     * @return the CRC32C of the content of the file, calculated over the mapped file window by window
+     */
+    private long hashContent(File csvFile) throws IOException {
+        CRC32C crc = new CRC32C();
+        try (RandomAccessFile file = new RandomAccessFile(csvFile, "r");
+             FileChannel channel = file.getChannel()) {
+            long fileSize = channel.size();
+            for (long position = 0; position < fileSize; position += HASHED_WINDOW_SIZE) {
+                crc.update(channel.map(FileChannel.MapMode.READ_ONLY, position,
+                        Math.min(HASHED_WINDOW_SIZE, fileSize - position)));
+            }
+        } catch (IOException ioe) {
+            throw new IOException(FILE_READING_IO_EXCEPTION_MESSAGE + csvFile.getName(), ioe);
+        }
+        return crc.getValue();
+    }
+
+    private static String readString(ByteBuffer buffer) {
+        byte[] bytes = new byte[buffer.getInt()];
+        buffer.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * The parsed content of a CSV file loaded from the cache
+     */
+    public static class Snapshot {
+
+        private final String dateFormat;
+        private final AssignmentTable assignments;
+
+        private Snapshot(String dateFormat, AssignmentTable assignments) {
+            this.dateFormat = dateFormat;
+            this.assignments = assignments;
+        }
+
+        public String getDateFormat() {
+            return dateFormat;
+        }
+
+        public AssignmentTable getAssignments() {
+            return assignments;
+        }
+    }
+}
@@ -0,0 +1,264 @@
+package com.rosenhristov.service;
+
+import com.rosenhristov.model.PairTotals;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+
+import static com.rosenhristov.utils.Constants.SPILL_FILE_EXCEPTION_MESSAGE;
+import static java.util.Objects.isNull;
+
+/**
+ * External aggregation of the pair totals for data sets whose pairs of coworkers do not fit in the heap.
+ * The collaborations are summed in a PairTotals of a fixed capacity derived from the memory budget. Whenever
+ * it is full, its partial totals are spilled to temporary files, one per hash partition of the pair keys,
+ * and it is cleared. A pair always falls in the same partition, so every partition is then aggregated on
+ * its own in the same PairTotals and its final totals are handed on before the next one is read.
+ * A partition that still has more pairs than the budget allows is split again by the next bits of the hash.
+ *
+ * The heap used is the budget and the write buffers of the partitions, whatever the number of pairs, and
+ * nothing is spilled if all pairs fit in the budget. The spill files are deleted once they are aggregated
+ * or when the aggregator is closed.
+ */
+public class SpillingPairAggregator implements CollaborationConsumer, Closeable {
+
+    private static final int PARTITION_BITS = 6;
+    private static final int PARTITIONS = 1 << PARTITION_BITS;
+    private static final int MAX_DEPTH = Long.SIZE / PARTITION_BITS - 1;
+
+    /**
+     * The bytes a pair takes in a PairTotals created for the pairs it should hold: a long key and an int total
+     * per slot and up to three slots per pair at the max load factor
+     */
+    private static final int BYTES_PER_PAIR = 36;
+    private static final int MIN_PAIRS = 1 << 10;
+    private static final int SPILL_BUFFER_SIZE = 1 << 16;
+
+    private final File spillDirectory;
+    private final int maxPairs;
+    private final PairTotals totals;
+    private Partitions spilled;
+    private long spilledPairs;
+    private long collaborations;
+
+    private SpillingPairAggregator(File spillDirectory, int maxPairs) {
+        this.spillDirectory = spillDirectory;
+        this.maxPairs = maxPairs;
+        this.totals = PairTotals.create(maxPairs);
+    }
+
+    /**
+     * @param spillDirectory the directory of the spill files, created if it does not exist
+     * @param memoryBudget the number of bytes the totals held in memory may take
+     */
+    public static SpillingPairAggregator of(File spillDirectory, long memoryBudget) {
+        if (!spillDirectory.isDirectory() && !spillDirectory.mkdirs()) {
+            throw new IllegalArgumentException("Cannot create the spill directory " + spillDirectory);
+        }
+        int maxPairs = (int) Math.max(MIN_PAIRS, Math.min(Integer.MAX_VALUE / 4, memoryBudget / BYTES_PER_PAIR));
+        return new SpillingPairAggregator(spillDirectory, maxPairs);
+    }
+
+    /**
+     * Adds the days of a collaboration to the total of its pair, spilling the totals if they are full
+     */
+    @Override
+    public void accept(int employee1, int employee2, int projectID, int daysWorked) {
+        totals.add(employee1, employee2, daysWorked);
+        collaborations++;
+        if (totals.size() >= maxPairs) {
+            spill();
+        }
+    }
+
+    /**
+     * Aggregates the partitions one by one and hands the final total of every pair to the consumer,
+     * in no particular order. The aggregator is empty afterwards.
+     */
+    public void forEachTotal(PairTotals.PairTotalConsumer consumer) {
+        if (isNull(spilled)) {
+            totals.forEach(consumer);
+            totals.clear();
+            return;
+        }
+        spill();
+        Partitions partitions = spilled;
+        spilled = null;
+        partitions.close();
+        aggregate(partitions, 0, consumer);
+    }
+
+    /**
+     * @return the number of collaborations added to the totals so far, whether they have been spilled or not
+     */
+    public long getCollaborations() {
+        return collaborations;
+    }
+
+    /**
+     * @return the number of partial pair totals written to the spill files so far
+     */
+    public long getSpilledPairs() {
+        return spilledPairs;
+    }
+
+    /**
+     * Deletes the spill files that have not been aggregated
+     */
+    @Override
+    public void close() {
+        if (!isNull(spilled)) {
+            spilled.close();
+            spilled.delete();
+            spilled = null;
+        }
+    }
+
+    private void spill() {
+        if (isNull(spilled)) {
+            spilled = new Partitions(spillDirectory, 0);
+        }
+        totals.forEach(spilled::write);
+        spilledPairs += totals.size();
+        totals.clear();
+    }
+
+    private void aggregate(Partitions partitions, int depth, PairTotals.PairTotalConsumer consumer) {
+        try {
+            for (int partition = 0; partition < PARTITIONS; partition++) {
+                File file = partitions.files[partition];
+                if (isNull(file)) {
+                    continue;
+                }
+                if (depth < MAX_DEPTH && !load(file)) {
+                    // more pairs than the budget allows: split the partition by the next bits of the hash
+                    totals.clear();
+                    Partitions split = new Partitions(spillDirectory, depth + 1);
+                    try {
+                        read(file, split::write);
+                    } finally {
+                        split.close();
+                    }
+                    Files.delete(file.toPath());
+                    partitions.files[partition] = null;
+                    aggregate(split, depth + 1, consumer);
+                    continue;
+                }
+                if (depth == MAX_DEPTH) {
+                    read(file, totals::add);
+                }
+                totals.forEach(consumer);
+                totals.clear();
+                Files.delete(file.toPath());
+                partitions.files[partition] = null;
+            }
+        } catch (IOException ioe) {
+            throw new RuntimeException(SPILL_FILE_EXCEPTION_MESSAGE + spillDirectory, ioe);
+        } finally {
+            partitions.delete();
+        }
+    }
+
+    /**
+     * @return true if all pairs of the file fit in the totals, false as soon as one does not
+     */
+    private boolean load(File file) throws IOException {
+        try (DataInputStream input = openInput(file)) {
+            while (true) {
+                long pairKey;
+                try {
+                    pairKey = input.readLong();
+                } catch (EOFException end) {
+                    return true;
+                }
+                totals.add(PairTotals.getEmployee1(pairKey), PairTotals.getEmployee2(pairKey), input.readInt());
+                if (totals.size() >= maxPairs) {
+                    return false;
+                }
+            }
+        }
+    }
+
+    private static void read(File file, PairTotals.PairTotalConsumer consumer) throws IOException {
+        try (DataInputStream input = openInput(file)) {
+            while (true) {
+                long pairKey;
+                try {
+                    pairKey = input.readLong();
+                } catch (EOFException end) {
+                    return;
+                }
+                consumer.accept(PairTotals.getEmployee1(pairKey), PairTotals.getEmployee2(pairKey), input.readInt());
+            }
+        }
+    }
+
+    private static DataInputStream openInput(File file) throws IOException {
+        return new DataInputStream(new BufferedInputStream(new FileInputStream(file), SPILL_BUFFER_SIZE));
+    }
+
+    /**
+     * The spill files of one level of partitioning, each written through a buffer of its own once the
+     * first pair falls in it. The partition of a pair is taken from the bits of the hash of its key
+     * below the bits the upper levels have used.
+     */
+    private static class Partitions {
+
+        private final File directory;
+        private final int shift;
+        private final File[] files = new File[PARTITIONS];
+        private final DataOutputStream[] outputs = new DataOutputStream[PARTITIONS];
+
+        private Partitions(File directory, int depth) {
+            this.directory = directory;
+            this.shift = Long.SIZE - PARTITION_BITS * (depth + 1);
+        }
+
+        private void write(int employee1, int employee2, int total) {
+            long pairKey = PairTotals.pairKey(employee1, employee2);
+            int partition = (int) ((pairKey * 0x9E3779B97F4A7C15L) >>> shift) & (PARTITIONS - 1);
+            try {
+                if (isNull(outputs[partition])) {
+                    files[partition] = Files.createTempFile(directory.toPath(), "pairs-", ".spill").toFile();
+                    outputs[partition] = new DataOutputStream(new BufferedOutputStream(
+                            new FileOutputStream(files[partition]), SPILL_BUFFER_SIZE));
+                }
+                outputs[partition].writeLong(pairKey);
+                outputs[partition].writeInt(total);
+            } catch (IOException ioe) {
+                throw new RuntimeException(SPILL_FILE_EXCEPTION_MESSAGE + directory, ioe);
+            }
+        }
+
+        private void close() {
+            try {
+                for (int partition = 0; partition < PARTITIONS; partition++) {
+                    if (!isNull(outputs[partition])) {
+                        outputs[partition].close();
+                        outputs[partition] = null;
+                    }
+                }
+            } catch (IOException ioe) {
+                throw new RuntimeException(SPILL_FILE_EXCEPTION_MESSAGE + directory, ioe);
+            }
+        }
+
+        private void delete() {
+            for (int partition = 0; partition < PARTITIONS; partition++) {
+                if (!isNull(files[partition])) {
+                    files[partition].delete();
+                    files[partition] = null;
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,99 @@
+package com.rosenhristov.service;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * Java Flight Recorder event of a stage of a run, committed when the stage recorded by RunMetrics.Stage ends,
+ * whether the metrics of the run are enabled or not. Every stage has its own event type, so a recording shows
+ * the time spent in every stage and the rows, pairs and projects the stage has processed. While no recording
+ * is running, JFR disables the events and beginning or committing one does nothing.
+ */
+@Category({"Employees", "Stages"})
+@StackTrace(false)
+public abstract class StageEvent extends Event {
+
+    @Label("Rows")
+    long rows;
+
+    @Label("Pairs")
+    long pairs;
+
+    @Label("Projects")
+    long projects;
+
+    @Label("Bytes Read")
+    @DataAmount
+    long bytesRead;
+
+    /**
+     * @return a new event of the stage named by one of the constants of RunMetrics, e.g. RunMetrics.READ
+     */
+    static StageEvent of(String stageName) {
+        switch (stageName) {
+            case RunMetrics.READ: return new ReadEvent();
+            case RunMetrics.DATE_DETECTION: return new DateDetectionEvent();
+            case RunMetrics.MAPPING: return new MappingEvent();
+            case RunMetrics.GROUPING: return new GroupingEvent();
+            case RunMetrics.PAIR_EXTRACTION: return new PairExtractionEvent();
+            case RunMetrics.AGGREGATION: return new AggregationEvent();
+            default: throw new IllegalArgumentException("Not a stage of a run: " + stageName);
+        }
+    }
+
+    /**
+     * Ends the event and commits it with the counts of the stage if it is recorded, the counts are set
+     * only then, so a stage costs nothing more than the event itself while no recording is running
+     */
+    void finish(long rows, long pairs, long projects, long bytesRead) {
+        end();
+        if (shouldCommit()) {
+            this.rows = rows;
+            this.pairs = pairs;
+            this.projects = projects;
+            this.bytesRead = bytesRead;
+            commit();
+        }
+    }
+
+    @Name("com.rosenhristov.Read")
+    @Label("File Read")
+    @Description("Reading the rows of a CSV file, a range of it or its snapshot")
+    public static class ReadEvent extends StageEvent {
+    }
+
+    @Name("com.rosenhristov.DateDetection")
+    @Label("Date Format Detection")
+    @Description("Identifying the date format of a CSV file by the DateAnalyst")
+    public static class DateDetectionEvent extends StageEvent {
+    }
+
+    @Name("com.rosenhristov.Mapping")
+    @Label("Row Mapping")
+    @Description("Mapping the cells of the rows to IDs and dates")
+    public static class MappingEvent extends StageEvent {
+    }
+
+    @Name("com.rosenhristov.Grouping")
+    @Label("Grouping")
+    @Description("Grouping the assignments by project or by employee")
+    public static class GroupingEvent extends StageEvent {
+    }
+
+    @Name("com.rosenhristov.PairExtraction")
+    @Label("Pair Extraction")
+    @Description("Sweeping the projects to find the pairs of coworkers")
+    public static class PairExtractionEvent extends StageEvent {
+    }
+
+    @Name("com.rosenhristov.Aggregation")
+    @Label("Aggregation")
+    @Description("Finding the longest or the top collaborations among the pair totals")
+    public static class AggregationEvent extends StageEvent {
+    }
+}
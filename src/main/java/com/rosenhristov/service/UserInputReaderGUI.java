@@ -64,7 +64,7 @@ public class UserInputReaderGUI extends BaseUserInputReader implements ActionLis
         filePath = filePathTextField.getText();
         if (!isCSVFilePath(filePath)) {
             filePathTextField.setText(null);
-            error = "This is not a path to '.csv' file. The file name should have a '.csv' extension";
+            error = "This is not a path to '.csv' file. The file name should have a '.csv', '.csv.gz' or '.zip' extension";
         }
 
         if (StringUtils.isNotEmpty(error)) {
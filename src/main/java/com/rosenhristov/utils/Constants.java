@@ -4,19 +4,37 @@ public interface Constants {
 
     public static final String DEFAULT_DATE_FORMAT = "yyyy-mm-dd";
 
+    /**
+     * Number of rows the streaming and mapped read modes inspect to identify the date format of a file,
+     * the rows after them are inspected only while the format is ambiguous
+     */
+    int DATE_FORMAT_SAMPLE_ROWS = 1000;
+
+    /**
+     * Min number of bytes of the ranges of lines a file is split into to be parsed in parallel
+     */
+    long PARALLEL_RANGE_MIN_SIZE = 1L << 20;
+
+    /**
+     * Default number of bytes the pair totals may take in memory before they are spilled to disk
+     */
+    long DEFAULT_SPILL_MEMORY_BUDGET = 64L << 20;
+
     String EXPECTED_RESPONSE_MESSAGE = "Please answer with 'y' for 'Yes' or 'n' for 'No'";
     String USER_INPUT_READER_EXCEPTION_MESSAGE = "Problem occurred while reading your input";
     String INPUT_STREAM_OR_READER_CLOSING_EXCEPTION_MESSAGE = "Problems closing user input reader";
     String FILE_READER_CLOSING_EXCEPTION_MESSAGE = "Problems closing user input reader";
     String ENTER_CSV_FILE_PATH_PROMPT = "Do you want to analyse the default 'projects.csv' file in resources directory? "
             + EXPECTED_RESPONSE_MESSAGE;
-    String WRONG_CSV_FILE_PATH_MESSAGE = "This is not a path to '.csv' file. The file name should have a '.csv' extension";
+    String WRONG_CSV_FILE_PATH_MESSAGE = "This is not a path to '.csv' file. The file name should have a '.csv', '.csv.gz' or '.zip' extension";
 
 
     String TITLE_ROW = "[EmpID, ProjectID, DateFrom, DateTo]";
-    String NOT_A_CSV_FILE_PATH_MESSAGE = "This path %s is not a path to a '.csv' file.";
+    String NOT_A_CSV_FILE_PATH_MESSAGE = "This path %s is not a path to a '.csv', '.csv.gz' or '.zip' file.";
     String INVALID_OR_NONEXISTENT_FILE_MESSAGE = "File %s is not a valid file or it does not exist ";
+    String NO_CSV_FILES_FOUND_MESSAGE = "No '.csv' files found at %s";
     String INVALID_OR_NONEXISTENT_CSV_FILE_MESSAGE = "This file %s is not a '.csv' file or it does not exist.";
     String FILE_READING_IO_EXCEPTION_MESSAGE = "Problem occurred while reading file ";
     String FILE_READING_CSV_EXCEPTION_MESSAGE = "Problems reading lines of file ";
+    String SPILL_FILE_EXCEPTION_MESSAGE = "Problem occurred while spilling the pair totals to ";
 }
@@ -0,0 +1,248 @@
+package com.rosenhristov.utils;
+
+import com.rosenhristov.mapper.DateParser;
+
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.Writer;
+import java.time.LocalDate;
+import java.util.Arrays;
+import java.util.Random;
+
+import static com.rosenhristov.service.DateAnalyst.*;
+import static com.rosenhristov.utils.Constants.DEFAULT_DATE_FORMAT;
+
+/**
+ * Generates synthetic CSV files of assignments (EmpID, ProjectID, DateFrom, DateTo) shaped like production
+ * data: the project sizes follow a Zipf distribution, so a few projects have thousands of members and most
+ * have a handful. The dates can be written in any format the DateAnalyst supports and a share of the end
+ * dates can be NULL. The file depends only on the settings and the seed, so a file of any size can be
+ * generated again instead of being stored. The rows are written as they are generated, so generating
+ * tens of millions of rows needs no more memory than a few rows.
+ *
+ * Usage from the command line:
+ * java com.rosenhristov.utils.DatasetGenerator path rows [employees projects zipfExponent nullRatio dateFormat seed]
+ */
+public class DatasetGenerator {
+
+    private static final String TITLE_LINE = "EmpID,ProjectID,DateFrom,DateTo";
+
+    private int rows = 1_000;
+    private int employees = 1_000;
+    private int projects = 100;
+    private double zipfExponent = 1.0;
+    private LocalDate firstDate = LocalDate.of(2000, 1, 1);
+    private LocalDate lastDate = LocalDate.of(2023, 12, 31);
+    private int maxAssignmentDays = 3 * 365;
+    private double nullEndDateRatio = 0.1;
+    private String dateFormat = DEFAULT_DATE_FORMAT;
+    private long seed = 42;
+
+    private DatasetGenerator() {
+    }
+
+    public static DatasetGenerator create() {
+        return new DatasetGenerator();
+    }
+
+    public DatasetGenerator rows(int rows) {
+        if (rows < 0) {
+            throw new IllegalArgumentException("The number of rows cannot be negative.");
+        }
+        this.rows = rows;
+        return this;
+    }
+
+    public DatasetGenerator employees(int employees) {
+        if (employees < 2) {
+            throw new IllegalArgumentException("At least two employees are needed to collaborate.");
+        }
+        this.employees = employees;
+        return this;
+    }
+
+    public DatasetGenerator projects(int projects) {
+        if (projects < 1) {
+            throw new IllegalArgumentException("At least one project is needed.");
+        }
+        this.projects = projects;
+        return this;
+    }
+
+    /**
+     * @param zipfExponent the skew of the project sizes: 0 makes all projects equally large, the greater
+     *                     the exponent the more members the largest projects have
+     */
+    public DatasetGenerator zipfExponent(double zipfExponent) {
+        if (zipfExponent < 0) {
+            throw new IllegalArgumentException("The Zipf exponent cannot be negative.");
+        }
+        this.zipfExponent = zipfExponent;
+        return this;
+    }
+
+    /**
+     * @param firstDate the earliest start date
+     * @param lastDate the latest start date
+     * @param maxAssignmentDays the longest period an employee works in a project
+     */
+    public DatasetGenerator dates(LocalDate firstDate, LocalDate lastDate, int maxAssignmentDays) {
+        if (!firstDate.isBefore(lastDate) || maxAssignmentDays < 1) {
+            throw new IllegalArgumentException("The dates should make a non-empty range.");
+        }
+        this.firstDate = firstDate;
+        this.lastDate = lastDate;
+        this.maxAssignmentDays = maxAssignmentDays;
+        return this;
+    }
+
+    public DatasetGenerator nullEndDateRatio(double nullEndDateRatio) {
+        if (nullEndDateRatio < 0 || nullEndDateRatio > 1) {
+            throw new IllegalArgumentException("The ratio of NULL end dates should be in the range [0:1].");
+        }
+        this.nullEndDateRatio = nullEndDateRatio;
+        return this;
+    }
+
+    /**
+     * @param dateFormat any of the formats the DateAnalyst supports, e.g. 'dd.mm.yyyy'
+     */
+    public DatasetGenerator dateFormat(String dateFormat) {
+        DateParser.compile(dateFormat); // fails if the format is not supported
+        this.dateFormat = dateFormat;
+        return this;
+    }
+
+    public DatasetGenerator seed(long seed) {
+        this.seed = seed;
+        return this;
+    }
+
+    public File write(File csvFile) {
+        try (Writer writer = new BufferedWriter(new FileWriter(csvFile), 1 << 16)) {
+            write(writer);
+        } catch (IOException ioe) {
+            throw new RuntimeException("Problem occurred while writing file " + csvFile.getName(), ioe);
+        }
+        return csvFile;
+    }
+
+    /**
+     * Writes the title line and the rows to the writer, which is left open
+     */
+    public void write(Writer writer) throws IOException {
+        Random random = new Random(seed);
+        double[] projectSizes = zipfCumulativeDistribution();
+        int[] projectIDs = shuffledProjectIDs(random);
+        String[] tokens = dateFormat.split(DELIMITER_REGEX);
+        char delimiter = dateFormat.charAt(tokens[0].length());
+        int firstDay = (int) firstDate.toEpochDay();
+        int startDays = (int) (lastDate.toEpochDay() - firstDay) + 1;
+
+        StringBuilder line = new StringBuilder(64);
+        writer.write(TITLE_LINE);
+        writer.write('\n');
+        for (int row = 0; row < rows; row++) {
+            int projectRank = Arrays.binarySearch(projectSizes, random.nextDouble());
+            int startDay = firstDay + random.nextInt(startDays);
+
+            line.setLength(0);
+            line.append(random.nextInt(employees) + 1).append(',')
+                    .append(projectIDs[projectRank < 0 ? -projectRank - 1 : projectRank]).append(',');
+            appendDate(line, startDay, tokens, delimiter);
+            line.append(',');
+            if (random.nextDouble() < nullEndDateRatio) {
+                line.append("NULL");
+            } else {
+                appendDate(line, startDay + 1 + random.nextInt(maxAssignmentDays), tokens, delimiter);
+            }
+            line.append('\n');
+            writer.append(line);
+        }
+    }
+
+    /**
+     * @return the cumulative probabilities of the project ranks, the project of rank k being chosen
+     *         with a probability proportional to 1 / k^zipfExponent
+     */
+    private double[] zipfCumulativeDistribution() {
+        double[] cumulative = new double[projects];
+        double sum = 0;
+        for (int rank = 0; rank < projects; rank++) {
+            sum += 1 / Math.pow(rank + 1, zipfExponent);
+            cumulative[rank] = sum;
+        }
+        for (int rank = 0; rank < projects; rank++) {
+            cumulative[rank] /= sum;
+        }
+        cumulative[projects - 1] = 1.0;
+        return cumulative;
+    }
+
+    /**
+     * @return the project IDs in random order, so the largest projects do not have the lowest IDs
+     */
+    private int[] shuffledProjectIDs(Random random) {
+        int[] projectIDs = new int[projects];
+        for (int i = 0; i < projects; i++) {
+            projectIDs[i] = i + 1;
+        }
+        for (int i = projects - 1; i > 0; i--) {
+            int j = random.nextInt(i + 1);
+            int projectID = projectIDs[i];
+            projectIDs[i] = projectIDs[j];
+            projectIDs[j] = projectID;
+        }
+        return projectIDs;
+    }
+
+    private void appendDate(StringBuilder line, int epochDay, String[] tokens, char delimiter) {
+        LocalDate date = LocalDate.ofEpochDay(epochDay);
+        for (int i = 0; i < tokens.length; i++) {
+            if (i > 0) {
+                line.append(delimiter);
+            }
+            switch (tokens[i]) {
+                case YEAR: appendDigits(line, date.getYear(), 4); break;
+                case MONTH: appendDigits(line, date.getMonthValue(), 2); break;
+                default: appendDigits(line, date.getDayOfMonth(), 2);
+            }
+        }
+    }
+
+    private void appendDigits(StringBuilder line, int value, int digits) {
+        for (int divisor = digits == 4 ? 1000 : 10; divisor > 0; divisor /= 10) {
+            line.append((char) ('0' + value / divisor % 10));
+        }
+    }
+
+    public static void main(String[] args) {
+        if (args.length < 2) {
+            System.out.println("Usage: DatasetGenerator path rows "
+                    + "[employees projects zipfExponent nullRatio dateFormat seed]");
+            return;
+        }
+        DatasetGenerator generator = DatasetGenerator.create().rows(Integer.parseInt(args[1]));
+        if (args.length > 2) {
+            generator.employees(Integer.parseInt(args[2]));
+        }
+        if (args.length > 3) {
+            generator.projects(Integer.parseInt(args[3]));
+        }
+        if (args.length > 4) {
+            generator.zipfExponent(Double.parseDouble(args[4]));
+        }
+        if (args.length > 5) {
+            generator.nullEndDateRatio(Double.parseDouble(args[5]));
+        }
+        if (args.length > 6) {
+            generator.dateFormat(args[6]);
+        }
+        if (args.length > 7) {
+            generator.seed(Long.parseLong(args[7]));
+        }
+        generator.write(new File(args[0]));
+    }
+}
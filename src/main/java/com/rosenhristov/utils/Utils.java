@@ -11,11 +11,15 @@ public class Utils {
 
 
     public static boolean isValidLine(String[] line) {
-        return !isNull(line) && !isNull(line[0]) && !isNull(line[1]) && isNotBlank(line[2]);
+        return !isNull(line) && line.length > 2 && !isNull(line[0]) && !isNull(line[1]) && isNotBlank(line[2]);
     }
 
+    /**
+     * @return true for a '.csv' file, a gzip compressed '.csv.gz' file or a '.zip' bundle of '.csv' files
+     */
     public static boolean isCSVFilePath(String filePath) {
-        return isNotBlank(filePath) && filePath.endsWith(".csv");
+        return isNotBlank(filePath)
+                && (filePath.endsWith(".csv") || filePath.endsWith(".csv.gz") || filePath.endsWith(".zip"));
     }
 
     public static boolean isCSVFile(File csvFile) {
@@ -0,0 +1,116 @@
+package com.rosenhristov;
+
+import com.rosenhristov.model.PairTotals;
+import com.rosenhristov.model.ProjectCollaboration;
+import com.rosenhristov.model.TopPairs;
+import com.rosenhristov.service.BatchProcessor;
+import com.rosenhristov.service.ResultExporter;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class BatchProcessorTest {
+
+    private static final String CSV_FILE_PATH = "src/test/resources/sample.csv";
+
+    @Test
+    @DisplayName("Should parse the batch mode arguments")
+    void testParseArguments() {
+        BatchProcessor batchProcessor = BatchProcessor.of(
+                new String[]{CSV_FILE_PATH, "--top", "5", "--format", "JSON", "--output", "result.json"});
+
+        assertEquals(CSV_FILE_PATH, batchProcessor.getFilePath());
+        assertEquals(5, batchProcessor.getTopK());
+        assertEquals("json", batchProcessor.getFormat());
+        assertEquals("result.json", batchProcessor.getOutputPath());
+    }
+
+    @Test
+    @DisplayName("Should throw an IllegalArgumentException when the arguments are not valid")
+    void shouldThrowIllegalArgumentExceptionWhenArgumentsAreInvalid() {
+        assertThrows(IllegalArgumentException.class, () -> BatchProcessor.of(new String[]{"--top", "5"}));
+        assertThrows(IllegalArgumentException.class, () -> BatchProcessor.of(new String[]{CSV_FILE_PATH, "--top"}));
+        assertThrows(IllegalArgumentException.class, () -> BatchProcessor.of(new String[]{CSV_FILE_PATH, "--top", "0"}));
+        assertThrows(IllegalArgumentException.class, () -> BatchProcessor.of(new String[]{CSV_FILE_PATH, "--format", "xml"}));
+        assertThrows(IllegalArgumentException.class, () -> BatchProcessor.of(new String[]{CSV_FILE_PATH, "other.csv"}));
+    }
+
+    @Test
+    @DisplayName("Should write the top collaborations with their projects to the output file")
+    void testRunWritesTopCollaborations(@TempDir Path tempDir) throws IOException {
+        Path textOutput = tempDir.resolve("result.txt");
+        BatchProcessor.of(new String[]{CSV_FILE_PATH, "--top", "2", "--output", textOutput.toString()}).run();
+
+        List<String> lines = Files.readAllLines(textOutput);
+        assertEquals("Employee ID #1, Employee ID #2, Project ID, Days worked", lines.get(0));
+        assertTrue(lines.get(1).contains(", total, "));
+
+        Path jsonOutput = tempDir.resolve("result.json");
+        BatchProcessor.of(new String[]{CSV_FILE_PATH, "--format", "json", "--output", jsonOutput.toString()}).run();
+
+        String json = Files.readString(jsonOutput);
+        assertTrue(json.startsWith("{\"file\":\"" + CSV_FILE_PATH + "\",\"collaborations\":["));
+        assertTrue(json.contains("\"projects\":[{\"projectID\":"));
+
+        Path csvOutput = tempDir.resolve("result.csv");
+        BatchProcessor.of(new String[]{CSV_FILE_PATH, "--top", "2", "--format", "csv", "--output", csvOutput.toString()}).run();
+
+        List<String> csvLines = Files.readAllLines(csvOutput);
+        assertEquals("Employee ID #1,Employee ID #2,Project ID,Days worked", csvLines.get(0));
+        assertEquals(lines.get(1).replace(", ", ","), csvLines.get(1));
+    }
+
+    @Test
+    @DisplayName("Should export the collaborations and the pair totals across the buffer boundaries")
+    void testResultExporter(@TempDir Path tempDir) throws IOException {
+        List<ProjectCollaboration> collaborations = new ArrayList<>();
+        PairTotals pairTotals = PairTotals.create();
+        StringBuilder expected = new StringBuilder("Employee ID #1,Employee ID #2,Project ID,Days worked\n");
+        for (int i = 0; i < 20_000; i++) {
+            ProjectCollaboration collaboration = new ProjectCollaboration(i, i + 1_000_000, i % 7, i * 31);
+            collaborations.add(collaboration);
+            pairTotals.add(collaboration.getEmployee1(), collaboration.getEmployee2(), collaboration.getDaysWorked());
+            expected.append(String.join(",", collaboration.stringify())).append('\n');
+        }
+        collaborations.add(new ProjectCollaboration(Integer.MIN_VALUE, -1, 0, Integer.MAX_VALUE));
+        expected.append(Integer.MIN_VALUE + ",-1,0," + Integer.MAX_VALUE + "\n");
+
+        File csvFile = tempDir.resolve("collaborations.csv").toFile();
+        try (ResultExporter exporter = ResultExporter.of(csvFile, ResultExporter.CSV_FORMAT)) {
+            exporter.exportCollaborations(collaborations);
+        }
+        assertEquals(expected.toString(), Files.readString(csvFile.toPath()));
+
+        File jsonFile = tempDir.resolve("collaborations.json").toFile();
+        try (ResultExporter exporter = ResultExporter.of(jsonFile, ResultExporter.JSON_FORMAT)) {
+            exporter.exportCollaborations(collaborations.subList(0, 2));
+        }
+        assertEquals("[\n{\"employee1\":0,\"employee2\":1000000,\"projectID\":0,\"daysWorked\":0},"
+                + "\n{\"employee1\":1,\"employee2\":1000001,\"projectID\":1,\"daysWorked\":31}\n]\n",
+                Files.readString(jsonFile.toPath()));
+
+        File totalsFile = tempDir.resolve("totals.txt").toFile();
+        try (ResultExporter exporter = ResultExporter.of(totalsFile, ResultExporter.TEXT_FORMAT)) {
+            exporter.exportPairTotals(pairTotals);
+        }
+        assertEquals(pairTotals.size() + 1, Files.readAllLines(totalsFile.toPath()).size());
+
+        File topFile = tempDir.resolve("top.txt").toFile();
+        try (ResultExporter exporter = ResultExporter.of(topFile, ResultExporter.TEXT_FORMAT)) {
+            exporter.exportTopPairs(TopPairs.of(2).offerAll(pairTotals));
+        }
+        assertEquals(List.of("Employee ID #1, Employee ID #2, Days worked",
+                "19999, 1019999, 619969", "19998, 1019998, 619938"), Files.readAllLines(topFile.toPath()));
+    }
+}
@@ -1,17 +1,43 @@
 package com.rosenhristov;
 
 
+import com.rosenhristov.mapper.Mapper;
+import com.rosenhristov.model.AssignmentTable;
 import com.rosenhristov.model.CSVRowData;
 import com.rosenhristov.service.CSVFileReader;
+import com.rosenhristov.service.CSVFileSetReader;
+import com.rosenhristov.service.CompressedInput;
+import com.rosenhristov.service.MappedCSVParser;
+import com.rosenhristov.service.SnapshotCache;
+import com.rosenhristov.utils.DatasetGenerator;
 import org.junit.jupiter.api.*;
+import org.junit.jupiter.api.io.TempDir;
 
+import java.io.EOFException;
 import java.io.File;
 import java.io.FileNotFoundException;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Date;
 import java.util.List;
+import java.util.stream.Stream;
+import java.util.zip.GZIPOutputStream;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
 
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
 
+@TestInstance(TestInstance.Lifecycle.PER_CLASS)
 public class CSVFileReaderTest {
 
     private CSVFileReader csvFileReader;
@@ -41,28 +67,286 @@ public class CSVFileReaderTest {
 
         assertEquals(145, rowData1.getEmployeeID());
         assertEquals(2, rowData1.getProjectID());
-        assertEquals("Fri Jan 20 00:01:00 EET 2012", rowData1.getDateFrom().toString());
-        assertEquals("Mon Jan 07 00:10:00 EET 2019", rowData1.getDateTo().toString());
+        assertEquals("Fri Jan 20 00:00:00 EET 2012", rowData1.getDateFrom().toString());
+        assertEquals("Mon Oct 07 00:00:00 EEST 2019", rowData1.getDateTo().toString());
 
         assertEquals(79, rowData2.getEmployeeID());
         assertEquals(20, rowData2.getProjectID());
-        assertEquals("Thu Jan 10 00:03:00 EET 2013", rowData2.getDateFrom().toString());
-        assertEquals("Sat Jan 07 00:07:00 EET 2017", rowData2.getDateTo().toString());
+        assertEquals("Sun Mar 10 00:00:00 EET 2013", rowData2.getDateFrom().toString());
+        assertEquals("Fri Jul 07 00:00:00 EEST 2017", rowData2.getDateTo().toString());
 
         assertEquals(22, rowData25.getEmployeeID());
         assertEquals(13, rowData25.getProjectID());
-        assertEquals("Tue Jan 27 00:09:00 EET 2015", rowData25.getDateFrom().toString());
+        assertEquals("Sun Sep 27 00:00:00 EEST 2015", rowData25.getDateFrom().toString());
         assertEquals(new Date().toString(), rowData25.getDateTo().toString());
 
         assertEquals(66, rowData145.getEmployeeID());
         assertEquals(8, rowData145.getProjectID());
-        assertEquals("Thu Jan 24 00:02:00 EET 2013", rowData145.getDateFrom().toString());
-        assertEquals("Mon Jan 18 00:10:00 EET 2016", rowData145.getDateTo().toString());
+        assertEquals("Sun Feb 24 00:00:00 EET 2013", rowData145.getDateFrom().toString());
+        assertEquals("Tue Oct 18 00:00:00 EEST 2016", rowData145.getDateTo().toString());
 
         assertEquals(193, rowData499.getEmployeeID());
         assertEquals(20, rowData499.getProjectID());
-        assertEquals("Thu Jan 16 00:11:00 EET 2014", rowData499.getDateFrom().toString());
-        assertEquals("Thu Jan 10 00:11:00 EET 2019", rowData499.getDateTo().toString());
+        assertEquals("Sun Nov 16 00:00:00 EET 2014", rowData499.getDateFrom().toString());
+        assertEquals("Sun Nov 10 00:00:00 EET 2019", rowData499.getDateTo().toString());
+    }
+
+    @Test
+    @DisplayName("Test streaming read mode returns the same rows as read()")
+    void testStreamReturnsTheSameRowsAsRead() {
+        List<CSVRowData> rowDataList = this.csvFileReader.read();
+        List<CSVRowData> streamedRows = new ArrayList<>();
+        this.csvFileReader.read(streamedRows::add);
+
+        assertEquals(rowDataList.size(), streamedRows.size());
+        for (int i = 0; i < rowDataList.size(); i++) {
+            assertEquals(rowDataList.get(i).getEmployeeID(), streamedRows.get(i).getEmployeeID());
+            assertEquals(rowDataList.get(i).getProjectID(), streamedRows.get(i).getProjectID());
+            assertEquals(rowDataList.get(i).getDateFrom(), streamedRows.get(i).getDateFrom());
+        }
+        assertEquals("yyyy-mm-dd", this.csvFileReader.getDateFormat());
+    }
+
+    @Test
+    @DisplayName("Test memory-mapped read mode decodes the rows of the file")
+    void testReadMapped() {
+        List<CSVRowData> rowDataList = this.csvFileReader.readMapped();
+
+        assertEquals(500, rowDataList.size());
+        assertEquals(145, rowDataList.get(0).getEmployeeID());
+        assertEquals(2, rowDataList.get(0).getProjectID());
+        assertEquals(LocalDate.of(2012, 1, 20), Mapper.toLocalDate(rowDataList.get(0).getDateFrom()));
+        assertEquals(LocalDate.of(2019, 10, 7), Mapper.toLocalDate(rowDataList.get(0).getDateTo()));
+        assertEquals(LocalDate.now(), Mapper.toLocalDate(rowDataList.get(25).getDateTo()));
+        assertEquals(193, rowDataList.get(499).getEmployeeID());
+    }
+
+    @Test
+    @DisplayName("Test memory-mapped read mode falls back to OpenCSV for irregular lines")
+    void testReadMappedIrregularLines(@TempDir Path tempDir) throws IOException {
+        Path csvPath = tempDir.resolve("irregular.csv");
+        Files.writeString(csvPath, "EmpID,ProjectID,DateFrom,DateTo\r\n"
+                + "1,10,20.04.2021,15.05.2022\r\n"
+                + "\"2\",\"10\",\"01.05.2021\",NULL\r\n"
+                + "\r\n"
+                + "3,11,13.01.2020,\"14.02.2020\"");
+
+        List<int[]> rows = new ArrayList<>();
+        CSVFileReader.of(csvPath.toString())
+                .readMapped((employeeID, projectID, startDay, endDay) ->
+                        rows.add(new int[]{employeeID, projectID, startDay, endDay}));
+
+        assertEquals(3, rows.size());
+        assertArrayEquals(new int[]{1, 10, (int) LocalDate.of(2021, 4, 20).toEpochDay(),
+                (int) LocalDate.of(2022, 5, 15).toEpochDay()}, rows.get(0));
+        assertArrayEquals(new int[]{2, 10, (int) LocalDate.of(2021, 5, 1).toEpochDay(),
+                (int) LocalDate.now().toEpochDay()}, rows.get(1));
+        assertArrayEquals(new int[]{3, 11, (int) LocalDate.of(2020, 1, 13).toEpochDay(),
+                (int) LocalDate.of(2020, 2, 14).toEpochDay()}, rows.get(2));
+    }
+
+    @Test
+    @DisplayName("Generated files are read in every supported date format and depend on the seed only")
+    void testReadGeneratedFiles(@TempDir Path tempDir) throws IOException {
+        for (String dateFormat : List.of("dd/mm/yyyy", "mm-dd-yyyy", "yyyy.mm.dd", "yyyy dd mm", "dd:mm:yyyy",
+                "mm;dd;yyyy", "yyyy_mm_dd")) {
+            File csvFile = DatasetGenerator.create()
+                    .rows(5_000)
+                    .employees(300)
+                    .projects(200)
+                    .zipfExponent(1.2)
+                    .nullEndDateRatio(0.2)
+                    .dateFormat(dateFormat)
+                    .seed(7)
+                    .write(tempDir.resolve("generated.csv").toFile());
+
+            CSVFileReader csvFileReader = CSVFileReader.of(csvFile);
+            List<CSVRowData> rows = csvFileReader.read();
+            assertEquals(dateFormat, csvFileReader.getDateFormat());
+            assertEquals(5_000, rows.size());
+            assertEquals(5_000, CSVFileReader.of(csvFile).readTable().size());
+
+            byte[] content = Files.readAllBytes(csvFile.toPath());
+            File sameSeedFile = DatasetGenerator.create()
+                    .rows(5_000)
+                    .employees(300)
+                    .projects(200)
+                    .zipfExponent(1.2)
+                    .nullEndDateRatio(0.2)
+                    .dateFormat(dateFormat)
+                    .seed(7)
+                    .write(tempDir.resolve("same-seed.csv").toFile());
+            assertArrayEquals(content, Files.readAllBytes(sameSeedFile.toPath()));
+        }
+    }
+
+    @Test
+    @DisplayName("An unchanged file is loaded from its snapshot and a changed one is parsed again")
+    void testReadTableFromSnapshotCache(@TempDir Path tempDir) throws IOException {
+        File csvFile = DatasetGenerator.create()
+                .rows(2_000)
+                .dateFormat("mm/dd/yyyy")
+                .write(tempDir.resolve("cached.csv").toFile());
+        File cacheDirectory = tempDir.resolve("cache").toFile();
+
+        AssignmentTable parsed = CSVFileReader.of(csvFile).withSnapshotCache(cacheDirectory).readTable();
+        SnapshotCache snapshotCache = SnapshotCache.of(cacheDirectory);
+        assertTrue(snapshotCache.getSnapshotFile(csvFile).isFile());
+
+        CSVFileReader cachedReader = CSVFileReader.of(csvFile).withSnapshotCache(cacheDirectory);
+        AssignmentTable loaded = cachedReader.readTable();
+        assertEquals("mm/dd/yyyy", cachedReader.getDateFormat());
+        assertSameRows(parsed, loaded);
+
+        long lastModified = csvFile.lastModified();
+        byte[] content = Files.readAllBytes(csvFile.toPath());
+        content[content.length - 2] = (byte) (content[content.length - 2] == '1' ? '2' : '1');
+        Files.write(csvFile.toPath(), content);
+        assertTrue(csvFile.setLastModified(lastModified));
+        assertNull(snapshotCache.load(csvFile));
+    }
+
+    @Test
+    @DisplayName("A file parsed in ranges of lines on several threads gives the rows of the sequential read")
+    void testReadTableInParallel(@TempDir Path tempDir) throws IOException {
+        File csvFile = DatasetGenerator.create()
+                .rows(150_000)
+                .dateFormat("dd.mm.yyyy")
+                .write(tempDir.resolve("large.csv").toFile());
+
+        long[] boundaries = MappedCSVParser.splitOnLines(csvFile, 4);
+        assertEquals(5, boundaries.length);
+        byte[] content = Files.readAllBytes(csvFile.toPath());
+        for (int i = 1; i < boundaries.length - 1; i++) {
+            assertEquals('\n', content[(int) boundaries[i] - 1]);
+        }
+
+        AssignmentTable sequential = CSVFileReader.of(csvFile).readTable();
+        CSVFileReader parallelReader = CSVFileReader.of(csvFile).withParallelism(4);
+        AssignmentTable parallel = parallelReader.readTable();
+        assertEquals("dd.mm.yyyy", parallelReader.getDateFormat());
+        assertEquals(150_000, parallel.size());
+        assertSameRows(sequential, parallel);
+    }
+
+    @Test
+    @DisplayName("Gzip files and zip bundles are read without being decompressed to disk")
+    void testReadCompressedFiles(@TempDir Path tempDir) throws IOException {
+        File csvFile = DatasetGenerator.create()
+                .rows(150_000)
+                .dateFormat("dd.mm.yyyy")
+                .write(tempDir.resolve("large.csv").toFile());
+        File gzipFile = tempDir.resolve("large.csv.gz").toFile();
+        try (OutputStream output = new GZIPOutputStream(new FileOutputStream(gzipFile))) {
+            Files.copy(csvFile.toPath(), output);
+        }
+        File zipFile = tempDir.resolve("bundle.zip").toFile();
+        try (ZipOutputStream output = new ZipOutputStream(new FileOutputStream(zipFile))) {
+            output.putNextEntry(new ZipEntry("large.csv"));
+            Files.copy(csvFile.toPath(), output);
+            output.putNextEntry(new ZipEntry("readme.txt"));
+            output.write("not a CSV file".getBytes());
+            output.putNextEntry(new ZipEntry("small.csv"));
+            Files.copy(DatasetGenerator.create()
+                    .rows(500)
+                    .dateFormat("dd.mm.yyyy")
+                    .seed(1)
+                    .write(tempDir.resolve("small.csv").toFile()).toPath(), output);
+        }
+
+        AssignmentTable plain = CSVFileReader.of(csvFile).readTable();
+        CSVFileReader gzipReader = CSVFileReader.of(gzipFile.getPath()).withParallelism(4);
+        AssignmentTable gzipped = gzipReader.readTable();
+        assertEquals("dd.mm.yyyy", gzipReader.getDateFormat());
+        assertSameRows(plain, gzipped);
+        assertEquals(150_000, CSVFileReader.of(gzipFile).read().size());
+
+        CSVFileReader zipReader = CSVFileReader.of(zipFile);
+        try (Stream<CSVRowData> rows = zipReader.stream()) {
+            assertEquals(150_500, rows.count());
+        }
+        assertEquals(150_500, zipReader.readTable().size());
+
+        byte[] gzipBytes = Files.readAllBytes(gzipFile.toPath());
+        File truncatedFile = tempDir.resolve("truncated.csv.gz").toFile();
+        Files.write(truncatedFile.toPath(), Arrays.copyOf(gzipBytes, gzipBytes.length / 2));
+        try (CompressedInput input = CompressedInput.of(truncatedFile)) {
+            byte[] buffer = new byte[1 << 16];
+            Assertions.assertThrows(EOFException.class, () -> {
+                while (input.read(buffer, 0, buffer.length) >= 0) {
+                    // the bytes inflated before the end of the truncated file
+                }
+            });
+            Assertions.assertTimeoutPreemptively(Duration.ofSeconds(10),
+                    () -> Assertions.assertThrows(EOFException.class, input::read));
+        }
+    }
+
+    @Test
+    @DisplayName("The files of a directory or a glob pattern are read with their own date formats into one table")
+    void testReadFileSet(@TempDir Path tempDir) throws IOException {
+        List<String> dateFormats = List.of("dd.mm.yyyy", "yyyy-mm-dd", "mm/dd/yyyy");
+        List<File> csvFiles = new ArrayList<>();
+        for (int i = 0; i < dateFormats.size(); i++) {
+            csvFiles.add(DatasetGenerator.create()
+                    .rows(1_000 * (i + 1))
+                    .dateFormat(dateFormats.get(i))
+                    .seed(i)
+                    .write(tempDir.resolve("department-" + i + ".csv").toFile()));
+        }
+        Files.writeString(tempDir.resolve("notes.txt"), "not a CSV file");
+
+        CSVFileSetReader csvFileSetReader = CSVFileSetReader.of(tempDir.toString()).withThreads(3);
+        AssignmentTable merged = csvFileSetReader.readTable();
+        assertEquals(csvFiles, csvFileSetReader.getCsvFiles());
+        assertEquals(6_000, merged.size());
+
+        int row = 0;
+        for (int i = 0; i < csvFiles.size(); i++) {
+            assertEquals(dateFormats.get(i), csvFileSetReader.getDateFormats().get(csvFiles.get(i)));
+            AssignmentTable table = CSVFileReader.of(csvFiles.get(i)).readTable();
+            for (int fileRow = 0; fileRow < table.size(); fileRow++, row++) {
+                assertEquals(table.getEmployeeID(fileRow), merged.getEmployeeID(row));
+                assertEquals(table.getStartDay(fileRow), merged.getStartDay(row));
+                assertEquals(table.getEndDay(fileRow), merged.getEndDay(row));
+            }
+        }
+
+        CSVFileSetReader globReader = CSVFileSetReader.of(tempDir.resolve("department-[02].csv").toString());
+        assertEquals(List.of(csvFiles.get(0), csvFiles.get(2)), globReader.getCsvFiles());
+        assertEquals(4_000, globReader.readTable().size());
+        Assertions.assertThrows(FileNotFoundException.class,
+                () -> CSVFileSetReader.of(tempDir.resolve("*.json").toString()));
+    }
+
+    @Test
+    @DisplayName("The date format is identified after the sample when the first rows are ambiguous")
+    void testReadAmbiguousSample(@TempDir Path tempDir) throws IOException {
+        StringBuilder content = new StringBuilder("EmpID,ProjectID,DateFrom,DateTo\n");
+        for (int row = 0; row < 1500; row++) {
+            content.append(row).append(",1,0").append(row % 9 + 1).append(".04.2020,NULL\n");
+        }
+        content.append("1500,1,25.04.2020,30.05.2020\n");
+        Path csvPath = tempDir.resolve("ambiguous.csv");
+        Files.writeString(csvPath, content);
+        File csvFile = csvPath.toFile();
+
+        CSVFileReader streamingReader = CSVFileReader.of(csvFile);
+        List<CSVRowData> rows = new ArrayList<>();
+        streamingReader.read(rows::add);
+        assertEquals("dd.mm.yyyy", streamingReader.getDateFormat());
+        assertEquals(1501, rows.size());
+        assertEquals(LocalDate.of(2020, 4, 1), Mapper.toLocalDate(rows.get(0).getDateFrom()));
+        assertEquals(LocalDate.of(2020, 5, 30), Mapper.toLocalDate(rows.get(1500).getDateTo()));
+
+        CSVFileReader mappedReader = CSVFileReader.of(csvFile);
+        AssignmentTable table = mappedReader.readTable();
+        assertEquals("dd.mm.yyyy", mappedReader.getDateFormat());
+        assertEquals(1501, table.size());
+        assertEquals(LocalDate.of(2020, 4, 2).toEpochDay(), table.getStartDay(1));
+
+        Files.writeString(csvPath, content.substring(0, content.lastIndexOf("1500,")));
+        Assertions.assertThrows(IllegalArgumentException.class, () -> CSVFileReader.of(csvFile).readTable());
     }
 
     @Test
@@ -83,4 +367,15 @@ public class CSVFileReaderTest {
             csvFileReader.read();
         });
     }
+
+    private void assertSameRows(AssignmentTable expected, AssignmentTable actual) {
+        assertEquals(expected.size(), actual.size());
+        for (int row = 0; row < expected.size(); row++) {
+            assertArrayEquals(
+                    new int[]{expected.getEmployeeID(row), expected.getProjectID(row),
+                            expected.getStartDay(row), expected.getEndDay(row)},
+                    new int[]{actual.getEmployeeID(row), actual.getProjectID(row),
+                            actual.getStartDay(row), actual.getEndDay(row)});
+        }
+    }
 }
\ No newline at end of file
@@ -2,21 +2,48 @@ package com.rosenhristov;
 
 
 import com.rosenhristov.mapper.Mapper;
+import com.rosenhristov.model.AssignmentTable;
 import com.rosenhristov.model.CSVRowData;
 import com.rosenhristov.model.Employee;
+import com.rosenhristov.model.PairTotals;
 import com.rosenhristov.model.ProjectCollaboration;
+import com.rosenhristov.model.TopPairs;
+import com.rosenhristov.service.CSVFileReader;
+import com.rosenhristov.service.CollaborationTableModel;
 import com.rosenhristov.service.DataProcessor;
+import com.rosenhristov.service.ProcessingPipeline;
+import com.rosenhristov.service.RunMetrics;
+import com.rosenhristov.service.SpillingPairAggregator;
+import com.rosenhristov.utils.DatasetGenerator;
 import org.apache.commons.lang3.tuple.ImmutablePair;
 import org.apache.commons.lang3.tuple.Pair;
 import org.junit.jupiter.api.*;
+import org.junit.jupiter.api.io.TempDir;
 
+import javax.management.ObjectName;
+import jdk.jfr.Recording;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordingFile;
+import java.io.File;
+import java.lang.management.ManagementFactory;
+import java.nio.file.Path;
 import java.text.DateFormat;
 import java.text.ParseException;
 import java.text.SimpleDateFormat;
+import java.time.LocalDate;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
 import java.util.Date;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.ForkJoinPool;
+import java.util.stream.Collectors;
 
+import static java.util.Objects.isNull;
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 
@@ -115,13 +142,13 @@ public class DataProcessorTest {
         assertEquals(1, collaboration1.getEmployee1());
         assertEquals(3, collaboration1.getEmployee2());
         assertEquals(1, collaboration1.getProjectID());
-        assertEquals(10, collaboration1.getDaysWorked());
+        assertEquals(375, collaboration1.getDaysWorked());
 
         ProjectCollaboration collaboration2 = collaborations.get(1);
         assertEquals(1, collaboration2.getEmployee1());
         assertEquals(3, collaboration2.getEmployee2());
         assertEquals(2, collaboration2.getProjectID());
-        assertEquals(0, collaboration2.getDaysWorked());
+        assertEquals(365, collaboration2.getDaysWorked());
     }
 
 
@@ -132,4 +159,451 @@ public class DataProcessorTest {
         List<ProjectCollaboration> collaborations = dataProcessor.extractProjectCollaborations();
         assertEquals(4, collaborations.size());
     }
-}
\ No newline at end of file
+
+    @Test
+    @DisplayName("ExtractProjectCollaborations matches the comparison of every pair of employees")
+    public void testExtractProjectCollaborationsMatchesPairwiseComparison() {
+        DataProcessor dataProcessor = DataProcessor.of(csvRowData);
+        List<ProjectCollaboration> collaborations = dataProcessor.extractProjectCollaborations();
+
+        Set<String> expected = new HashSet<>();
+        for (Employee employee : employees) {
+            for (Employee colleague : employees) {
+                if (employee.getEmployeeID() < colleague.getEmployeeID()) {
+                    dataProcessor.extractCollaborationsForEmployees(employee, colleague)
+                            .forEach(collaboration -> expected.add(collaboration.toString()));
+                }
+            }
+        }
+        Set<String> actual = new HashSet<>();
+        collaborations.forEach(collaboration -> actual.add(collaboration.toString()));
+
+        assertEquals(expected, actual);
+
+        // periods of no days overlap the periods they fall strictly inside, for 0 days
+        Random random = new Random(5);
+        List<CSVRowData> rows = new ArrayList<>(List.of(
+                new CSVRowData(1, 1_000, Mapper.toDate(100), Mapper.toDate(200)),
+                new CSVRowData(2, 1_000, Mapper.toDate(150), Mapper.toDate(150)),
+                new CSVRowData(3, 1_000, Mapper.toDate(100), Mapper.toDate(100)),
+                new CSVRowData(4, 1_000, Mapper.toDate(150), Mapper.toDate(160))));
+        for (int i = 0; i < 500; i++) {
+            CSVRowData row = randomRow(random);
+            rows.add(i % 5 == 0 ? new CSVRowData(row.getEmployeeID(), row.getProjectID(), row.getDateFrom(),
+                    row.getDateFrom()) : row);
+        }
+        DataProcessor withEmptyPeriods = DataProcessor.of(rows);
+        List<Employee> rowEmployees = List.copyOf(withEmptyPeriods.groupProjectsByEmployee().values());
+        Set<String> expectedWithEmptyPeriods = new HashSet<>();
+        for (Employee employee : rowEmployees) {
+            for (Employee colleague : rowEmployees) {
+                if (employee.getEmployeeID() < colleague.getEmployeeID()) {
+                    withEmptyPeriods.extractCollaborationsForEmployees(employee, colleague)
+                            .forEach(collaboration -> expectedWithEmptyPeriods.add(collaboration.toString()));
+                }
+            }
+        }
+        Set<String> actualWithEmptyPeriods = new HashSet<>();
+        withEmptyPeriods.extractProjectCollaborations()
+                .forEach(collaboration -> actualWithEmptyPeriods.add(collaboration.toString()));
+
+        assertEquals(expectedWithEmptyPeriods, actualWithEmptyPeriods);
+        assertTrue(actualWithEmptyPeriods.contains(new ProjectCollaboration(1, 2, 1_000, 0).toString()));
+        assertTrue(actualWithEmptyPeriods.contains(new ProjectCollaboration(1, 4, 1_000, 10).toString()));
+    }
+
+    @Test
+    @DisplayName("Parallel execution calculates the same totals per pair as the sequential one")
+    public void testParallelTotalCollaborationPerPair() {
+        Map<Pair<Integer, Integer>, Integer> sequential = DataProcessor.of(csvRowData)
+                .calculateTotalCollaborationPerPair();
+
+        ForkJoinPool forkJoinPool = new ForkJoinPool(4);
+        try {
+            DataProcessor dataProcessor = DataProcessor.of(csvRowData).inParallel(forkJoinPool);
+            assertEquals(sequential, dataProcessor.calculateTotalCollaborationPerPair());
+            assertEquals(4, dataProcessor.extractProjectCollaborations().size());
+        } finally {
+            forkJoinPool.shutdown();
+        }
+    }
+
+    @Test
+    @DisplayName("DataProcessor over an AssignmentTable finds the same collaborations as over CSVRowData")
+    public void testAssignmentTableProcessing() {
+        AssignmentTable assignments = Mapper.toAssignmentTable(csvRowData);
+        assertEquals(5, assignments.size());
+
+        Map<Pair<Integer, Integer>, Integer> expected = DataProcessor.of(csvRowData).getLongestProjectCollaboration();
+        assertEquals(expected, DataProcessor.of(assignments).getLongestProjectCollaboration());
+        assertEquals(Map.of(Pair.of(1, 3), 740), expected);
+    }
+
+    @Test
+    @DisplayName("Pair totals accumulated in place match the totals summed in a HashMap")
+    public void testPairTotalsMatchBoxedTotals() {
+        Random random = new Random(42);
+        Map<Pair<Integer, Integer>, Integer> expected = new HashMap<>();
+        PairTotals left = PairTotals.create();
+        PairTotals right = PairTotals.create(10);
+        for (int i = 0; i < 100_000; i++) {
+            int employee1 = random.nextInt(500);
+            int employee2 = employee1 + 1 + random.nextInt(500);
+            int days = 1 + random.nextInt(1000);
+            expected.merge(ImmutablePair.of(employee1, employee2), days, Integer::sum);
+            if (i % 2 == 0) {
+                left.add(employee1, employee2, days);
+            } else {
+                right.add(employee2, employee1, days);
+            }
+        }
+        PairTotals totals = left.addAll(right);
+
+        assertEquals(expected, totals.toMap());
+        assertEquals(expected.size(), totals.size());
+        assertEquals(expected.values().stream().mapToInt(days -> days).max().getAsInt(), totals.getMaxTotal());
+        expected.forEach((pair, days) -> assertEquals(days, totals.get(pair.getValue(), pair.getKey())));
+        assertEquals(0, totals.get(1, 1));
+    }
+
+    @Test
+    @DisplayName("Top collaborations are the longest totals per pair in descending order")
+    public void testTopCollaborations() {
+        DataProcessor dataProcessor = DataProcessor.of(csvRowData);
+
+        Map<Pair<Integer, Integer>, Integer> top = dataProcessor.getTopCollaborations(2);
+        assertEquals(List.of(Pair.of(1, 3), Pair.of(1, 2)), List.copyOf(top.keySet()));
+        assertEquals(List.of(740, 375), List.copyOf(top.values()));
+        assertEquals(dataProcessor.getLongestProjectCollaboration(), dataProcessor.getTopCollaborations(1));
+        assertEquals(dataProcessor.calculateTotalCollaborationPerPair(), dataProcessor.getTopCollaborations(100));
+
+        Map<Integer, List<ProjectCollaboration>> topPerProject = dataProcessor.getTopCollaborationsPerProject(1);
+        assertEquals("ProjectCollaboration{employee1=1, employee2=2, projectID=1, daysWorked=375}",
+                topPerProject.get(1).get(0).toString());
+        assertEquals(1, topPerProject.get(2).size());
+    }
+
+    @Test
+    @DisplayName("The bounded heap keeps the same pairs as sorting all the totals")
+    public void testTopPairsMatchSortedTotals() {
+        Random random = new Random(7);
+        PairTotals totals = PairTotals.create();
+        for (int i = 0; i < 20_000; i++) {
+            totals.add(random.nextInt(300), 300 + random.nextInt(300), random.nextInt(50));
+        }
+        List<Pair<Integer, Integer>> expected = totals.toMap().entrySet().stream()
+                .sorted(Map.Entry.<Pair<Integer, Integer>, Integer>comparingByValue().reversed()
+                        .thenComparing(Map.Entry.comparingByKey()))
+                .limit(100)
+                .map(Map.Entry::getKey)
+                .collect(Collectors.toList());
+
+        assertEquals(expected, List.copyOf(TopPairs.of(100).offerAll(totals).toRankedMap().keySet()));
+    }
+
+    @Test
+    @DisplayName("Applying a delta gives the same totals and longest collaboration as processing all rows again")
+    public void testApplyDeltaMatchesFullRecompute(@TempDir Path tempDir) {
+        Random random = new Random(11);
+        Map<Pair<Integer, Integer>, CSVRowData> rowsByAssignment = new HashMap<>();
+        for (int i = 0; i < 2_000; i++) {
+            CSVRowData row = randomRow(random);
+            rowsByAssignment.put(ImmutablePair.of(row.getEmployeeID(), row.getProjectID()), row);
+        }
+        DataProcessor dataProcessor = DataProcessor.of(List.copyOf(rowsByAssignment.values()));
+        dataProcessor.getLongestProjectCollaboration();
+        DataProcessor spilling = DataProcessor.of(List.copyOf(rowsByAssignment.values()))
+                .withSpilling(tempDir.toFile(), 1);
+        spilling.getWinnersCollaborations();
+        spilling.calculateTotalCollaborationPerPair();
+
+        List<CSVRowData> removed = rowsByAssignment.values().stream().limit(150).collect(Collectors.toList());
+        removed.forEach(row -> rowsByAssignment.remove(ImmutablePair.of(row.getEmployeeID(), row.getProjectID())));
+        Map<Pair<Integer, Integer>, CSVRowData> added = new HashMap<>();
+        for (int i = 0; i < 300; i++) {
+            CSVRowData row = randomRow(random);
+            added.put(ImmutablePair.of(row.getEmployeeID(), row.getProjectID()), row);
+        }
+        rowsByAssignment.putAll(added);
+        dataProcessor.applyDelta(List.copyOf(added.values()), removed);
+        spilling.applyDelta(List.copyOf(added.values()), removed);
+
+        DataProcessor recomputed = DataProcessor.of(List.copyOf(rowsByAssignment.values()));
+        assertEquals(recomputed.calculateTotalCollaborationPerPair(), dataProcessor.calculateTotalCollaborationPerPair());
+        // the winners are found from the longest collaboration updated in place by the delta
+        assertEquals(
+                recomputed.getWinnersCollaborations().stream().map(Object::toString).collect(Collectors.toSet()),
+                dataProcessor.getWinnersCollaborations().stream().map(Object::toString).collect(Collectors.toSet()));
+        // the totals of the spilling mode, if already calculated, are adjusted by the delta as well
+        assertEquals(recomputed.calculateTotalCollaborationPerPair(), spilling.calculateTotalCollaborationPerPair());
+        // the longest collaboration of the spilling mode is aggregated again after the delta
+        assertEquals(
+                recomputed.getWinnersCollaborations().stream().map(Object::toString).collect(Collectors.toSet()),
+                spilling.getWinnersCollaborations().stream().map(Object::toString).collect(Collectors.toSet()));
+    }
+
+    @Test
+    @DisplayName("Interval index lookups find the same coworkers as comparing the employee with every row")
+    public void testFindCollaborationsMatchesFullScan() {
+        Random random = new Random(5);
+        Map<Pair<Integer, Integer>, CSVRowData> rowsByAssignment = new HashMap<>();
+        for (int i = 0; i < 2_000; i++) {
+            CSVRowData row = randomRow(random);
+            rowsByAssignment.put(ImmutablePair.of(row.getEmployeeID(), row.getProjectID()), row);
+        }
+        DataProcessor dataProcessor = DataProcessor.of(List.copyOf(rowsByAssignment.values()));
+
+        for (int query = 0; query < 200; query++) {
+            int employeeID = random.nextInt(200);
+            int projectID = random.nextInt(40);
+            LocalDate from = LocalDate.ofEpochDay(18_000 + random.nextInt(1_400));
+            LocalDate to = from.plusDays(random.nextInt(200));
+
+            Set<String> expected = new HashSet<>();
+            List<Integer> expectedEmployees = new ArrayList<>();
+            for (CSVRowData row : rowsByAssignment.values()) {
+                LocalDate start = Mapper.toLocalDate(row.getDateFrom());
+                LocalDate end = Mapper.toLocalDate(row.getDateTo());
+                if (row.getProjectID() == projectID && start.isBefore(to) && end.isAfter(from)) {
+                    expectedEmployees.add(row.getEmployeeID());
+                }
+                CSVRowData employeeRow = rowsByAssignment.get(ImmutablePair.of(employeeID, row.getProjectID()));
+                if (isNull(employeeRow) || row.getEmployeeID() == employeeID) {
+                    continue;
+                }
+                LocalDate windowStart = max(max(start, Mapper.toLocalDate(employeeRow.getDateFrom())), from);
+                LocalDate windowEnd = min(min(end, Mapper.toLocalDate(employeeRow.getDateTo())), to);
+                if (windowStart.isBefore(windowEnd)) {
+                    expected.add(new ProjectCollaboration(employeeID, row.getEmployeeID(), row.getProjectID(),
+                            (int) ChronoUnit.DAYS.between(windowStart, windowEnd)).toString());
+                }
+            }
+
+            assertEquals(expected, dataProcessor.findCollaborations(employeeID, from, to).stream()
+                    .map(Object::toString)
+                    .collect(Collectors.toSet()));
+            assertEquals(Set.copyOf(expectedEmployees), Set.copyOf(dataProcessor.findEmployeesInProject(projectID, from, to)));
+            assertEquals(expectedEmployees.size(), dataProcessor.findEmployeesInProject(projectID, from, to).size());
+        }
+    }
+
+    @Test
+    @DisplayName("Collaboration index lookups return the collaborations found by comparing the employees")
+    public void testCollaborationIndexMatchesPairwiseComparison() {
+        Random random = new Random(3);
+        List<CSVRowData> rows = new ArrayList<>();
+        for (int i = 0; i < 1_000; i++) {
+            rows.add(randomRow(random));
+        }
+        DataProcessor dataProcessor = DataProcessor.of(rows);
+        Map<Integer, Employee> employeesMap = dataProcessor.groupProjectsByEmployee();
+
+        assertEquals(dataProcessor.calculateTotalCollaborationPerPair().size(),
+                dataProcessor.getCollaborationIndex().getPairs());
+        for (int employee1 = 0; employee1 < 200; employee1 += 7) {
+            for (int employee2 = employee1 + 1; employee2 < 200; employee2 += 3) {
+                Set<String> expected = new HashSet<>();
+                if (employeesMap.containsKey(employee1) && employeesMap.containsKey(employee2)) {
+                    dataProcessor.extractCollaborationsForEmployees(employeesMap.get(employee1), employeesMap.get(employee2))
+                            .forEach(collaboration -> expected.add(collaboration.toString()));
+                }
+                Set<String> actual = new HashSet<>();
+                dataProcessor.getCollaborations(employee2, employee1)
+                        .forEach(collaboration -> actual.add(collaboration.toString()));
+                assertEquals(expected, actual);
+            }
+        }
+    }
+
+    @Test
+    @DisplayName("The pipelined execution finds the same collaborations as reading and processing one after the other")
+    public void testProcessingPipelineMatchesSequentialProcessing(@TempDir Path tempDir) {
+        File csvFile = DatasetGenerator.create()
+                .rows(20_000)
+                .employees(500)
+                .projects(50)
+                .dateFormat("dd/mm/yyyy")
+                .write(tempDir.resolve("pipelined.csv").toFile());
+
+        DataProcessor sequential = DataProcessor.of(CSVFileReader.of(csvFile).readTable());
+        ProcessingPipeline pipeline = ProcessingPipeline.of(csvFile).withBlockSize(4096).withQueueCapacity(2);
+        DataProcessor pipelined = pipeline.run();
+
+        assertEquals("dd/mm/yyyy", pipeline.getDateFormat());
+        assertEquals(20_000, pipelined.getAssignments().size());
+        assertEquals(sequential.getPairTotals().toMap(), pipelined.getPairTotals().toMap());
+        assertEquals(sequential.getLongestProjectCollaboration(), pipelined.getLongestProjectCollaboration());
+
+        Assertions.assertThrows(RuntimeException.class,
+                () -> ProcessingPipeline.of(csvFile).withBlockSize(16).run());
+    }
+
+    @Test
+    @DisplayName("Spilling the pair totals to disk under a memory budget gives the in-memory results")
+    public void testSpillingAggregationMatchesInMemoryAggregation(@TempDir Path tempDir) {
+        File csvFile = DatasetGenerator.create()
+                .rows(2_000)
+                .employees(500)
+                .projects(20)
+                .write(tempDir.resolve("many-pairs.csv").toFile());
+        AssignmentTable assignments = CSVFileReader.of(csvFile).readTable();
+        DataProcessor inMemory = DataProcessor.of(assignments);
+        PairTotals pairTotals = inMemory.getPairTotals();
+
+        File spillDirectory = tempDir.resolve("spill").toFile();
+        Map<Pair<Integer, Integer>, Integer> aggregated = new HashMap<>();
+        try (SpillingPairAggregator aggregator = SpillingPairAggregator.of(spillDirectory, 1)) {
+            DataProcessor.of(assignments).extractProjectCollaborations().forEach(collaboration -> aggregator.accept(
+                    collaboration.getEmployee1(), collaboration.getEmployee2(),
+                    collaboration.getProjectID(), collaboration.getDaysWorked()));
+            assertTrue(aggregator.getSpilledPairs() > pairTotals.size());
+            aggregator.forEachTotal((employee1, employee2, total) ->
+                    assertTrue(isNull(aggregated.put(ImmutablePair.of(employee1, employee2), total))));
+        }
+        assertEquals(pairTotals.toMap(), aggregated);
+
+        // more pairs than 64 partitions of the smallest budget hold, so the partitions are split again
+        long[] checksum = {0, 0};
+        try (SpillingPairAggregator aggregator = SpillingPairAggregator.of(spillDirectory, 1)) {
+            for (int round = 1; round <= 2; round++) {
+                for (int employee = 0; employee < 100_000; employee++) {
+                    aggregator.accept(employee, employee + round, 0, round);
+                }
+            }
+            aggregator.forEachTotal((employee1, employee2, total) -> {
+                checksum[0]++;
+                checksum[1] += total;
+            });
+        }
+        assertEquals(200_000, checksum[0]);
+        assertEquals(300_000, checksum[1]);
+
+        DataProcessor spilling = DataProcessor.of(assignments).withSpilling(spillDirectory, 1);
+        Map<Pair<Integer, Integer>, Integer> longest = spilling.getLongestProjectCollaboration();
+        assertEquals(inMemory.getLongestProjectCollaboration(), longest);
+        assertEquals(new ArrayList<>(inMemory.getTopCollaborations(10).entrySet()),
+                new ArrayList<>(spilling.getTopCollaborations(10).entrySet()));
+        Pair<Integer, Integer> winners = longest.keySet().iterator().next();
+        assertEquals(inMemory.getCollaborations(winners.getKey(), winners.getValue()).toString(),
+                spilling.getCollaborations(winners.getKey(), winners.getValue()).toString());
+        // the drill-down of several pairs is found by one sweep, in the order of the pairs, in either ID order
+        List<Pair<Integer, Integer>> pairs = new ArrayList<>(inMemory.getTopCollaborations(10).keySet());
+        pairs.add(ImmutablePair.of(pairs.get(0).getValue(), pairs.get(0).getKey()));
+        pairs.add(ImmutablePair.of(-1, -2));
+        Map<Pair<Integer, Integer>, List<ProjectCollaboration>> collaborations = spilling.getCollaborations(pairs);
+        assertEquals(inMemory.getCollaborations(pairs).toString(), collaborations.toString());
+        assertEquals(pairs, new ArrayList<>(collaborations.keySet()));
+        assertEquals(collaborations.get(pairs.get(0)), collaborations.get(pairs.get(10)));
+        assertTrue(collaborations.get(pairs.get(11)).isEmpty());
+        assertEquals(inMemory.getWinnersCollaborations().toString(), spilling.getWinnersCollaborations().toString());
+
+        // all pairs fit in the budget, so nothing is spilled, the extraction still counts every collaboration
+        RunMetrics metrics = RunMetrics.create();
+        DataProcessor.of(assignments).withSpilling(spillDirectory, 1 << 24).withMetrics(metrics).getTopCollaborations(10);
+        assertEquals(inMemory.extractProjectCollaborations().size(), metrics.getStages().stream()
+                .filter(stage -> stage.getName().equals(RunMetrics.PAIR_EXTRACTION))
+                .mapToLong(RunMetrics.StageMetrics::getPairs)
+                .sum());
+        assertEquals(0, spillDirectory.list().length);
+    }
+
+    @Test
+    @DisplayName("The metrics of a run record every stage with its rows and pairs and are exposed over JMX")
+    public void testRunMetricsRecordEveryStage() throws Exception {
+        RunMetrics metrics = RunMetrics.create();
+        List<CSVRowData> rows = CSVFileReader.of("src/test/resources/sample.csv").withMetrics(metrics).read();
+        DataProcessor dataProcessor = DataProcessor.of(rows).withMetrics(metrics);
+        dataProcessor.getLongestProjectCollaboration();
+
+        List<String> stageNames = metrics.getStages().stream()
+                .map(RunMetrics.StageMetrics::getName)
+                .collect(Collectors.toList());
+        assertEquals(List.of(RunMetrics.READ, RunMetrics.DATE_DETECTION, RunMetrics.MAPPING, RunMetrics.MAPPING,
+                RunMetrics.GROUPING, RunMetrics.PAIR_EXTRACTION, RunMetrics.AGGREGATION), stageNames);
+        assertEquals(500, metrics.getRows());
+        assertTrue(metrics.getBytesRead() > 0);
+        assertEquals(dataProcessor.getPairTotals().size(), metrics.getStages().get(5).getPairs());
+        assertTrue(metrics.getWallTimeNanos() >= metrics.getStages().get(0).getWallTimeNanos());
+        assertTrue(metrics.toJson().startsWith("{\"wallTimeNanos\":"));
+        assertTrue(metrics.toString().contains(RunMetrics.PAIR_EXTRACTION));
+
+        ObjectName objectName = metrics.registerMBean("testRunMetricsRecordEveryStage");
+        try {
+            assertEquals(500L, ManagementFactory.getPlatformMBeanServer().getAttribute(objectName, "Rows"));
+        } finally {
+            ManagementFactory.getPlatformMBeanServer().unregisterMBean(objectName);
+        }
+    }
+
+    @Test
+    @DisplayName("A flight recording has an event per stage of a run and per project swept")
+    public void testFlightRecordingHasEventsOfStagesAndProjects(@TempDir Path tempDir) throws Exception {
+        List<RecordedEvent> events;
+        Path recordingFile = tempDir.resolve("run.jfr");
+        try (Recording recording = new Recording()) {
+            List.of("Read", "DateDetection", "Mapping", "Grouping", "PairExtraction", "Aggregation", "ProjectSweep")
+                    .forEach(event -> recording.enable("com.rosenhristov." + event).withoutThreshold());
+            recording.start();
+            List<CSVRowData> rows = CSVFileReader.of("src/test/resources/sample.csv").read();
+            DataProcessor dataProcessor = DataProcessor.of(rows);
+            dataProcessor.getLongestProjectCollaboration();
+            recording.stop();
+            recording.dump(recordingFile);
+            events = RecordingFile.readAllEvents(recordingFile);
+        }
+
+        Map<String, List<RecordedEvent>> eventsByName = events.stream()
+                .collect(Collectors.groupingBy(event -> event.getEventType().getName()));
+        assertEquals(500, eventsByName.get("com.rosenhristov.Read").get(0).getLong("rows"));
+        assertTrue(eventsByName.containsKey("com.rosenhristov.DateDetection"));
+        assertTrue(eventsByName.containsKey("com.rosenhristov.Aggregation"));
+        RecordedEvent pairExtraction = eventsByName.get("com.rosenhristov.PairExtraction").get(0);
+        assertTrue(pairExtraction.getLong("pairs") > 0);
+
+        List<RecordedEvent> projectSweeps = eventsByName.get("com.rosenhristov.ProjectSweep");
+        assertEquals(pairExtraction.getLong("projects"), projectSweeps.size());
+        int assignmentsSwept = projectSweeps.stream().mapToInt(event -> event.getInt("assignments")).sum();
+        assertTrue(assignmentsSwept > 0 && assignmentsSwept <= 500); // only the last period of an employee in a project is swept
+        assertTrue(projectSweeps.stream().allMatch(event ->
+                event.getInt("peakActiveAssignments") <= event.getInt("assignments")));
+    }
+
+    @Test
+    @DisplayName("The table model sorts and filters the collaborations by index without copying them")
+    public void testCollaborationTableModelSortsAndFiltersWithoutCopying() {
+        List<ProjectCollaboration> collaborations = DataProcessor.of(csvRowData).extractProjectCollaborations();
+        CollaborationTableModel model = CollaborationTableModel.of(collaborations);
+        assertEquals(collaborations.size(), model.getRowCount());
+        assertEquals(collaborations.get(0).getDaysWorked(), model.getValueAt(0, CollaborationTableModel.DAYS_WORKED));
+
+        model.sortBy(CollaborationTableModel.DAYS_WORKED, false);
+        for (int row = 1; row < model.getRowCount(); row++) {
+            assertTrue(model.getCollaboration(row - 1).getDaysWorked() >= model.getCollaboration(row).getDaysWorked());
+        }
+
+        model.filter(collaboration -> collaboration.getProjectID() == 2);
+        assertEquals(1, model.getRowCount());
+        assertEquals(365, model.getValueAt(0, CollaborationTableModel.DAYS_WORKED));
+
+        model.toggleSortBy(CollaborationTableModel.EMPLOYEE_2);
+        model.filter(null);
+        assertEquals(collaborations.size(), model.getRowCount());
+        for (int row = 1; row < model.getRowCount(); row++) {
+            assertTrue(model.getCollaboration(row - 1).getEmployee2() <= model.getCollaboration(row).getEmployee2());
+        }
+    }
+
+    private static LocalDate max(LocalDate date, LocalDate other) {
+        return date.isAfter(other) ? date : other;
+    }
+
+    private static LocalDate min(LocalDate date, LocalDate other) {
+        return date.isBefore(other) ? date : other;
+    }
+
+    private CSVRowData randomRow(Random random) {
+        int startDay = 18_000 + random.nextInt(1_000);
+        return new CSVRowData(random.nextInt(200), random.nextInt(40),
+                Mapper.toDate(startDay), Mapper.toDate(startDay + 1 + random.nextInt(400)));
+    }
+}
@@ -1,16 +1,20 @@
 package com.rosenhristov;
 
+import com.rosenhristov.mapper.DateParser;
 import com.rosenhristov.service.DateAnalyst;
 import org.junit.jupiter.api.Assertions;
 import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Test;
 
+import java.time.LocalDate;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
 import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
 
 public class DateAnalystTest {
 
@@ -62,4 +66,60 @@ public class DateAnalystTest {
         );
         assertThrows(IllegalArgumentException.class, () -> DateAnalyst.of(invalidCsvData).identifyDateFormat());
     }
+
+    @Test
+    @DisplayName("Should compile a date parser decoding the dates of the identified format to epoch days")
+    void testIdentifiedDateParser() {
+        DateParser dateParser = DateAnalyst.of(VALID_CSV_DATA).identifyDateFormat().getDateParser();
+
+        assertEquals("yyyy/mm/dd", dateParser.getDateFormat());
+        assertEquals(LocalDate.of(2021, 4, 1).toEpochDay(), dateParser.parseEpochDay("2021/04/01"));
+        assertEquals(LocalDate.now().toEpochDay(), dateParser.parseEpochDay("NULL"));
+        assertEquals(DateParser.INVALID_DATE, dateParser.parseEpochDay("2021-04-01"));
+        assertEquals(DateParser.INVALID_DATE, dateParser.parseEpochDay("2021/02/30"));
+        assertEquals(DateParser.INVALID_DATE, dateParser.parseEpochDay("2021/04/01 "));
+    }
+
+    @Test
+    @DisplayName("Date parser epoch days should match java.time for every day of two centuries")
+    void testDateParserEpochDays() {
+        DateParser dateParser = DateParser.compile("dd.mm.yyyy");
+        for (LocalDate date = LocalDate.of(1900, 1, 1); date.getYear() < 2100; date = date.plusDays(1)) {
+            String text = String.format("%02d.%02d.%04d", date.getDayOfMonth(), date.getMonthValue(), date.getYear());
+            assertEquals(date.toEpochDay(), dateParser.parseEpochDay(text));
+        }
+    }
+
+    @Test
+    @DisplayName("Should stop analysing rows as soon as the date format is unambiguous")
+    void testSamplingStopsWhenFormatIsUnambiguous() {
+        DateAnalyst dateAnalyst = DateAnalyst.sampling(1000);
+
+        assertTrue(dateAnalyst.analyse(List.of("1", "1", "01-02-2020", "NULL")));
+        assertFalse(dateAnalyst.analyse(List.of("2", "1", "11-12-2020", "25-12-2021")));
+        assertEquals(2, dateAnalyst.getAnalysedRows());
+        assertEquals("dd-mm-yyyy", dateAnalyst.identifyDateFormat().getDateFormat());
+    }
+
+    @Test
+    @DisplayName("Should stop analysing rows when the sample size is reached")
+    void testSamplingStopsAtSampleSize() {
+        DateAnalyst dateAnalyst = DateAnalyst.sampling(2);
+
+        assertTrue(dateAnalyst.analyse(List.of("1", "1", "01.02.2020", "02.03.2020")));
+        assertFalse(dateAnalyst.analyse(List.of("2", "1", "03.04.2020", "NULL")));
+        assertThrows(IllegalArgumentException.class, dateAnalyst::identifyDateFormat);
+    }
+
+    @Test
+    @DisplayName("Should identify the formats with every supported delimiter")
+    void testIdentifyDateFormatWithEveryDelimiter() {
+        for (String delimiter : List.of("/", "-", "_", ".", " ", ":", ";", "\\")) {
+            List<List<String>> rows = List.of(
+                    List.of("1", "1", String.join(delimiter, "2020", "28", "02"), "NULL"),
+                    List.of("2", "1", String.join(delimiter, "2021", "01", "11"), "NULL"));
+            assertEquals(String.join(delimiter, "yyyy", "dd", "mm"),
+                    DateAnalyst.of(rows).identifyDateFormat().getDateFormat());
+        }
+    }
 }